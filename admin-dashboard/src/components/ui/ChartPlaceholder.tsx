@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from 'react';
+import React from 'react';
 import styled from 'styled-components';
 import {
     LineChart,
@@ -10,13 +10,16 @@ import {
     Legend,
     ResponsiveContainer,
 } from 'recharts';
-import { api } from '../../api';
 
 interface WeeklyDataPoint {
     day: string;
     orders: number;
 }
 
+interface ChartPlaceholderProps {
+    data: WeeklyDataPoint[];
+}
+
 const ChartCard = styled.div`
     background: #ffffff;
     border-radius: 16px;
@@ -34,21 +37,8 @@ const ChartTitle = styled.h3`
     margin-bottom: 16px;
 `;
 
-const ChartPlaceholder: React.FC = () => {
-    const [data, setData] = useState<WeeklyDataPoint[]>([]);
-
-    useEffect(() => {
-        const fetchWeeklyData = async () => {
-            try {
-                const res = await api.get('/admin/dashboard/orders-weekly');
-                setData(res.data);
-            } catch (err) {
-                console.error('Failed to fetch weekly orders:', err);
-            }
-        };
-        fetchWeeklyData();
-    }, []);
-
+// the weekly series is loaded and kept live by the Dashboard page
+const ChartPlaceholder: React.FC<ChartPlaceholderProps> = ({ data }) => {
     return (
         <ChartCard>
             <ChartTitle>Weekly Orders</ChartTitle>
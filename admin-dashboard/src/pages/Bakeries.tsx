@@ -98,7 +98,7 @@ interface Bakery {
     name: string;
     phone: string;
     pluginInstalled: boolean;
-    token: string;
+    token?: string;
 }
 
 const Bakeries: React.FC = () => {
@@ -305,10 +305,16 @@ const Bakeries: React.FC = () => {
                         <Td>{b.phone}</Td>
                         <Td>{b.pluginInstalled ? '✅' : '❌'}</Td>
                         <Td>
-                            <Button onClick={() => {
-                                navigator.clipboard.writeText(b.token);
-                                setCopiedTokenId(b.id);
-                                setTimeout(() => setCopiedTokenId(null), 2000);
+                            <Button onClick={async () => {
+                                try {
+                                    // the list omits secrets, so fetch the full record for its token
+                                    const res = await api.get(`/admin/bakeries/${b.id}`);
+                                    await navigator.clipboard.writeText(res.data.token);
+                                    setCopiedTokenId(b.id);
+                                    setTimeout(() => setCopiedTokenId(null), 2000);
+                                } catch (error) {
+                                    toast.error('Failed to copy token');
+                                }
                             }}>
                                 Copy token
                             </Button>
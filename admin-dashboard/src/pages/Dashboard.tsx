@@ -8,6 +8,7 @@ import {
     PieChart, Pie, Cell, Legend, RadarChart, PolarGrid, Radar
 } from 'recharts';
 import toast from 'react-hot-toast';
+import { DashboardDelta, subscribeDashboard } from '../services/dashboardStream';
 // Styled Components
 const DashboardContainer = styled.div`
     padding: 40px;
@@ -89,6 +90,18 @@ interface CompartmentsStatus {
     busy: number;
 }
 
+interface ConditionRow {
+    easybox: string;
+    good: number;
+    dirty: number;
+    broken: number;
+}
+
+interface WeeklyDataPoint {
+    day: string;
+    orders: number;
+}
+
 const COLORS = ['#6c5ce7', '#00b894', '#fdcb6e', '#e17055'];
 
 // Component
@@ -96,12 +109,49 @@ const Dashboard: React.FC = () => {
     const [stats, setStats] = useState<DashboardStats | null>(null);
     const [ordersStatus, setOrdersStatus] = useState<OrdersStatusPoint[]>([]);
     const [compartmentsStatus, setCompartmentsStatus] = useState<CompartmentsStatus | null>(null);
-    const [radarData, setRadarData] = useState([]);
+    const [radarData, setRadarData] = useState<ConditionRow[]>([]);
+    const [weeklyData, setWeeklyData] = useState<WeeklyDataPoint[]>([]);
 
     useEffect(() => {
         fetchDashboardData();
+        // live updates: every changed cell arrives with its new absolute value
+        return subscribeDashboard(applyDelta);
     }, []);
 
+    const applyDelta = ({ metric, key, field, value }: DashboardDelta) => {
+        switch (metric) {
+            case 'stats':
+                setStats(prev => ({ ...(prev ?? { totalEasyboxes: 0, activeCompartments: 0, totalOrders: 0, expiredOrders: 0 }), [field]: value }));
+                break;
+            case 'orders-status':
+                setOrdersStatus(prev => {
+                    const rest = prev.filter(entry => entry.status !== key);
+                    return value > 0
+                        ? [...rest, { status: key, count: value }].sort((a, b) => a.status.localeCompare(b.status))
+                        : rest;
+                });
+                break;
+            case 'compartments-status':
+                setCompartmentsStatus(prev => ({ ...(prev ?? { free: 0, busy: 0 }), [field]: value }));
+                break;
+            case 'compartments-by-condition':
+                setRadarData(prev => {
+                    if (field === 'compartments' && value === 0) {
+                        return prev.filter(row => row.easybox !== key);
+                    }
+                    const existing = prev.find(row => row.easybox === key)
+                        ?? { easybox: key, good: 0, dirty: 0, broken: 0 };
+                    const updated = field === 'compartments' ? existing : { ...existing, [field]: value };
+                    return [...prev.filter(row => row.easybox !== key), updated]
+                        .sort((a, b) => a.easybox.localeCompare(b.easybox, undefined, { numeric: true }));
+                });
+                break;
+            case 'orders-weekly':
+                setWeeklyData(prev => prev.map(point => point.day === key ? { ...point, orders: value } : point));
+                break;
+        }
+    };
+
     const fetchDashboardData = async () => {
         try {
             const statsRes = await api.get('/admin/dashboard/stats');
@@ -115,6 +165,9 @@ const Dashboard: React.FC = () => {
 
             const compartmentsRes = await api.get('/admin/dashboard/compartments-status');
             setCompartmentsStatus(compartmentsRes.data);
+
+            const weeklyRes = await api.get('/admin/dashboard/orders-weekly');
+            setWeeklyData(weeklyRes.data);
         }
         catch (error: any) {
             const message = error?.response?.data || 'Error fetching dashboard data';
@@ -150,7 +203,7 @@ const Dashboard: React.FC = () => {
 
             <SectionTitle>Analytics</SectionTitle>
             <ChartsGrid>
-                <ChartPlaceholder />
+                <ChartPlaceholder data={weeklyData} />
                 {/* Line Chart - Orders Over Time */}
                 <ChartCard>
                     <ChartTitle>Compartment Conditions by Easybox</ChartTitle>
@@ -0,0 +1,71 @@
+export interface DashboardDelta {
+    metric: string;
+    key: string;
+    field: string;
+    value: number;
+}
+
+const RECONNECT_DELAY_MS = 5000;
+
+// EventSource cannot send the bearer token, so the SSE stream is read through fetch.
+// The server starts every connection with a full snapshot, so reconnecting is always safe.
+export function subscribeDashboard(onDelta: (delta: DashboardDelta) => void): () => void {
+    let stopped = false;
+    let controller: AbortController | null = null;
+    let retry: ReturnType<typeof setTimeout> | null = null;
+
+    const connect = async () => {
+        controller = new AbortController();
+        try {
+            const token = sessionStorage.getItem('token');
+            const res = await fetch(`${process.env.REACT_APP_API_URL}/admin/dashboard/stream`, {
+                headers: {
+                    Accept: 'text/event-stream',
+                    ...(token ? { Authorization: `Bearer ${token}` } : {}),
+                },
+                signal: controller.signal,
+            });
+            if (!res.ok || !res.body) {
+                throw new Error(`Dashboard stream failed: ${res.status}`);
+            }
+
+            const reader = res.body.getReader();
+            const decoder = new TextDecoder();
+            let buffer = '';
+            while (!stopped) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                buffer += decoder.decode(value, { stream: true });
+
+                let end;
+                while ((end = buffer.indexOf('\n\n')) >= 0) {
+                    const message = buffer.slice(0, end);
+                    buffer = buffer.slice(end + 2);
+                    const data = message
+                        .split('\n')
+                        .filter(line => line.startsWith('data:'))
+                        .map(line => line.slice(5).trim())
+                        .join('');
+                    if (data) {
+                        onDelta(JSON.parse(data));
+                    }
+                }
+            }
+        } catch (err) {
+            if (!stopped) {
+                console.warn('Dashboard stream interrupted:', err);
+            }
+        }
+        if (!stopped) {
+            retry = setTimeout(connect, RECONNECT_DELAY_MS);
+        }
+    };
+
+    connect();
+
+    return () => {
+        stopped = true;
+        if (retry) clearTimeout(retry);
+        controller?.abort();
+    };
+}
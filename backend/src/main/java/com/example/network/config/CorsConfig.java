@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import com.example.network.dto.PageCursor;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;       // ← reactive
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
@@ -26,6 +27,7 @@ public class CorsConfig {
         ));
     config.setAllowedMethods(Arrays.asList("GET", "POST", "PATCH", "PUT", "DELETE", "OPTIONS"));
     config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+    config.setExposedHeaders(Arrays.asList(PageCursor.HEADER)); // so the admin lists can page on
     config.setAllowCredentials(true);
 
     // Allow all origins for /api/device/**
@@ -1,6 +1,6 @@
 package com.example.network.config;
 
-import com.example.network.repository.EasyboxRepository;
+import com.example.network.service.EasyboxCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,10 +17,10 @@ public class JwtVerifier {
     // must match device secret
     @Value("${jwt.device-secret}")
     private String sharedSecret;
-    private final EasyboxRepository easyboxRepository;
+    private final EasyboxCache easyboxCache;
 
-    public JwtVerifier(EasyboxRepository easyboxRepository) {
-        this.easyboxRepository = easyboxRepository;
+    public JwtVerifier(EasyboxCache easyboxCache) {
+        this.easyboxCache = easyboxCache;
     }
     public Mono<String> verifyAndExtractClientId(String token) {
         String clientId;
@@ -40,7 +40,7 @@ public class JwtVerifier {
         }
 
         // Step 2: Fetch Easybox reactively
-        return easyboxRepository.findByClientId(clientId)
+        return easyboxCache.findByClientId(clientId)
                 .flatMap(box -> {
                     // Step 3: Try device-specific key if approved
                     if (box != null && box.getSecretKey() != null && Boolean.TRUE.equals(box.getApproved())) {
@@ -104,7 +104,7 @@ public class JwtVerifier {
             return Mono.error(new SecurityException("Unable to extract clientId from token", e));
         }
 
-        return easyboxRepository.findByClientId(clientId)
+        return easyboxCache.findByClientId(clientId)
                 .flatMap(box -> {
                     if (box == null || !Boolean.TRUE.equals(box.getApproved()) || box.getSecretKey() == null) {
                         return Mono.error(new SecurityException("Device not approved or missing secret"));
@@ -45,6 +45,7 @@ public class SecurityConfig {
                         .pathMatchers("/api/admin/**").hasRole("ADMIN")
                         .pathMatchers("/api/widget/**").hasRole("BAKERY")
                         .pathMatchers("/api/mobile/**").hasAnyRole("USER", "BAKERY")
+                        .pathMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .anyExchange().permitAll()
                 )
                 .oauth2ResourceServer(oauth -> oauth
@@ -1,107 +1,75 @@
 package com.example.network.controller;
 
 import com.example.network.dto.*;
-import com.example.network.model.Reservation;
-import com.example.network.model.Compartment;
-import com.example.network.repository.EasyboxRepository;
-import com.example.network.repository.ReservationRepository;
-import com.example.network.repository.CompartmentRepository;
+import com.example.network.repository.DashboardRepository;
+import com.example.network.service.DashboardCounters;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin/dashboard")
 public class AdminDashboardController {
 
-    private final EasyboxRepository easyboxRepository;
-    private final ReservationRepository reservationRepository;
-    private final CompartmentRepository compartmentRepository;
+    private final DashboardRepository dashboardRepository;
+    private final DashboardCounters dashboardCounters;
 
-    public AdminDashboardController(EasyboxRepository easyboxRepository,
-                                    ReservationRepository reservationRepository,
-                                    CompartmentRepository compartmentRepository) {
-        this.easyboxRepository = easyboxRepository;
-        this.reservationRepository = reservationRepository;
-        this.compartmentRepository = compartmentRepository;
+    public AdminDashboardController(DashboardRepository dashboardRepository,
+                                    DashboardCounters dashboardCounters) {
+        this.dashboardRepository = dashboardRepository;
+        this.dashboardCounters = dashboardCounters;
     }
 
+    // the views read the in-memory counters, and only go to the database until those are loaded
+
     @GetMapping("/stats")
     public Mono<DashboardStatsDto> getStats() {
-        return Mono.zip(
-                        easyboxRepository.count(),
-                        compartmentRepository.count(),
-                        reservationRepository.count(),
-                        reservationRepository.findAll().filter(r -> "expired".equalsIgnoreCase(r.getStatus())).count()
-                )
-                .map(tuple -> new DashboardStatsDto(
-                        tuple.getT1(), // easyboxes
-                        tuple.getT2(), // compartments
-                        tuple.getT3(), // total orders
-                        tuple.getT4()  // expired orders
-                ));
+        return dashboardCounters.isReady()
+                ? Mono.fromSupplier(dashboardCounters::stats)
+                : dashboardRepository.stats();
     }
 
     @GetMapping("/compartments-by-condition")
     public Mono<List<Map<String, Object>>> getCompartmentConditionRadarData() {
-        return compartmentRepository.findAll()
-                .collect(Collectors.groupingBy(Compartment::getEasyboxId))
-                .map(map -> map.entrySet().stream().map(entry -> {
-                    Long easyboxId = entry.getKey();
-                    List<Compartment> compartments = entry.getValue();
-
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("easybox", "Easybox " + easyboxId);
-                    result.put("good", compartments.stream().filter(c -> "good".equalsIgnoreCase(c.getCondition())).count());
-                    result.put("dirty", compartments.stream().filter(c -> "dirty".equalsIgnoreCase(c.getCondition())).count());
-                    result.put("broken", compartments.stream().filter(c -> "broken".equalsIgnoreCase(c.getCondition())).count());
-
-                    return result;
-                }).collect(Collectors.toList()));
+        return dashboardCounters.isReady()
+                ? Mono.fromSupplier(dashboardCounters::compartmentConditionsByEasybox)
+                : dashboardRepository.compartmentConditionsByEasybox().collectList();
     }
 
     @GetMapping("/orders-status")
     public Flux<OrdersStatusDto> getOrdersStatus() {
-        return reservationRepository.findAll()
-                .groupBy(Reservation::getStatus)
-                .flatMap(group -> group.count()
-                        .map(count -> new OrdersStatusDto(group.key(), count))
-                );
+        return dashboardCounters.isReady()
+                ? Flux.defer(() -> Flux.fromIterable(dashboardCounters.ordersByStatus()))
+                : dashboardRepository.ordersByStatus();
     }
 
     @GetMapping("/compartments-status")
     public Mono<CompartmentsStatusDto> getCompartmentsStatus() {
-        return compartmentRepository.findAll()
-                .collect(Collectors.groupingBy(Compartment::getStatus, Collectors.counting()))
-                .map(map -> {
-                    long free = map.getOrDefault("free", 0L);
-                    long busy = map.getOrDefault("busy", 0L);
-                    return new CompartmentsStatusDto(free, busy);
-                });
+        return dashboardCounters.isReady()
+                ? Mono.fromSupplier(dashboardCounters::compartmentsByStatus)
+                : dashboardRepository.compartmentsByStatus();
     }
     @GetMapping("/orders-weekly")
     public Mono<List<OrdersWeeklyDto>> getOrdersWeekly() {
         LocalDate today = LocalDate.now();
         LocalDate weekLater = today.plusDays(6);
 
-        return reservationRepository.findAll()
-                .filter(r -> r.getDeliveryTime() != null)
-                .filter(r -> {
-                    LocalDate date = r.getDeliveryTime().toLocalDate();
-                    return !date.isBefore(today) && !date.isAfter(weekLater);
-                })
-                .collect(Collectors.groupingBy(r -> r.getDeliveryTime().toLocalDate(), Collectors.counting()))
+        Mono<Map<LocalDate, Long>> counts = dashboardCounters.isReady()
+                ? Mono.fromSupplier(() -> dashboardCounters.ordersPerDeliveryDay(today, weekLater))
+                : dashboardRepository.ordersPerDeliveryDay(today, weekLater);
+        return counts
                 .map(countsByDate -> {
-                    List<OrdersWeeklyDto> result = new java.util.ArrayList<>();
+                    List<OrdersWeeklyDto> result = new ArrayList<>();
                     for (int i = 0; i < 7; i++) {
                         LocalDate date = today.plusDays(i);
                         long count = countsByDate.getOrDefault(date, 0L);
@@ -111,5 +79,13 @@ public class AdminDashboardController {
                 });
     }
 
-
+    /** Pushes every dashboard cell once, then each cell again whenever its count changes. */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DashboardDeltaDto>> streamDashboard() {
+        Flux<ServerSentEvent<DashboardDeltaDto>> updates = dashboardCounters.stream()
+                .map(delta -> ServerSentEvent.builder(delta).event(delta.getMetric()).build());
+        Flux<ServerSentEvent<DashboardDeltaDto>> keepAlive = Flux.interval(Duration.ofSeconds(30))
+                .map(tick -> ServerSentEvent.<DashboardDeltaDto>builder().comment("keep-alive").build());
+        return Flux.merge(updates, keepAlive);
+    }
 }
@@ -4,13 +4,28 @@ import com.example.network.model.Easybox;
 import com.example.network.model.Reservation;
 import com.example.network.repository.EasyboxRepository;
 import com.example.network.repository.ReservationRepository;
+import com.example.network.service.BatchLoader;
+import com.example.network.service.EasyboxCache;
+import com.example.network.service.QrImageRenderer;
+import com.example.network.service.QrTokenService;
+import com.example.network.exception.InvalidRequestException;
+import com.example.network.exception.NotFoundException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 
@@ -18,11 +33,34 @@ import java.util.Map;
 @RequestMapping("/api/app/orders")
 public class AppOrdersController {
 
+    private static final MediaType SVG = MediaType.valueOf("image/svg+xml");
+    // the payload follows the reservation's current compartment, which can be reassigned, so clients
+    // revalidate every time; an unchanged image costs a 304 thanks to the ETag
+    private static final CacheControl QR_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final ReservationRepository reservationRepository;
     private final EasyboxRepository easyboxRepository;
-    public AppOrdersController(ReservationRepository reservationRepository, EasyboxRepository easyboxRepository) {
+    private final EasyboxCache easyboxCache;
+    private final QrImageRenderer qrImageRenderer;
+    private final QrTokenService qrTokenService;
+    public AppOrdersController(ReservationRepository reservationRepository, EasyboxRepository easyboxRepository,
+                               EasyboxCache easyboxCache, QrImageRenderer qrImageRenderer, QrTokenService qrTokenService) {
         this.reservationRepository = reservationRepository;
         this.easyboxRepository = easyboxRepository;
+        this.easyboxCache = easyboxCache;
+        this.qrImageRenderer = qrImageRenderer;
+        this.qrTokenService = qrTokenService;
+    }
+    private static boolean showQr(Reservation res, boolean isBakery) {
+        return (isBakery && "waiting_bakery_drop_off".equalsIgnoreCase(res.getStatus())) ||
+                (!isBakery && "waiting_client_pick_up".equalsIgnoreCase(res.getStatus()));
+    }
+    // signed reservations get a token scoped to the viewer's step; legacy codes are shown as stored
+    private String qrPayload(Reservation res, boolean isBakery) {
+        if (!QrTokenService.isToken(res.getQrContent())) {
+            return res.getQrContent();
+        }
+        return qrTokenService.issue(res, isBakery ? QrTokenService.Role.DROP_OFF : QrTokenService.Role.PICK_UP);
     }
     private static boolean hasRole(List<String> roles, String target) {
         return roles.stream()
@@ -39,29 +77,23 @@ public class AppOrdersController {
                 ? reservationRepository.findAllByBakeryId(userId)
                 : reservationRepository.findAllByUserId(userId);
 
-        return reservations.flatMap(res ->
-                easyboxRepository.findById(res.getEasyboxId())
-                        .map(easybox -> {
-                            Map<String, Object> result = new HashMap<>();
-                            result.put("id", res.getId());
-                            result.put("status", res.getStatus());
-                            result.put("deliveryTime", res.getDeliveryTime().toString());
-                            result.put("easyboxAddress", easybox.getAddress());
-                            result.put("actionDeadline", isBakery
-                                    ? res.getDeliveryTime().toString()
-                                    : res.getReservationEnd().toString());
-
-                            return result;
-                        })
-                        .switchIfEmpty(Mono.fromSupplier(() -> {
-                            Map<String, Object> fallback = new HashMap<>();
-                            fallback.put("id", res.getId());
-                            fallback.put("status", res.getStatus());
-                            fallback.put("deliveryTime", res.getDeliveryTime().toString());
-                            fallback.put("easyboxAddress", "Unknown Location");
-                            return fallback;
-                        })))
-                ;
+        return BatchLoader.of(easyboxRepository, Easybox::getId).join(reservations, Reservation::getEasyboxId,
+                (res, easybox) -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("id", res.getId());
+                    result.put("status", res.getStatus());
+                    result.put("deliveryTime", res.getDeliveryTime().toString());
+                    if (easybox == null) {
+                        result.put("easyboxAddress", "Unknown Location");
+                        return result;
+                    }
+                    result.put("easyboxAddress", easybox.getAddress());
+                    result.put("actionDeadline", isBakery
+                            ? res.getDeliveryTime().toString()
+                            : res.getReservationEnd().toString());
+
+                    return result;
+                });
     }
 
     @GetMapping("/{id}")
@@ -78,9 +110,9 @@ public class AppOrdersController {
                 : reservationRepository.findByIdAndUserId(id, userId);
 
         return resMono.flatMap(res ->
-                easyboxRepository.findById(res.getEasyboxId())
+                easyboxCache.findById(res.getEasyboxId())
                         .defaultIfEmpty(new Easybox(null, 0.0, 0.0, null, "inactive"))
-                        .map(easybox -> {
+                        .flatMap(easybox -> {
                             Map<String, Object> map = new HashMap<>();
                             map.put("id", res.getId());
                             map.put("status", res.getStatus());
@@ -91,19 +123,65 @@ public class AppOrdersController {
                                     ? res.getDeliveryTime().toString()
                                     : res.getReservationEnd().toString());
 
-                            boolean showQr =
-                                    (isBakery && "waiting_bakery_drop_off".equalsIgnoreCase(res.getStatus())) ||
-                                            (!isBakery && "waiting_client_pick_up".equalsIgnoreCase(res.getStatus()));
-
-                            if (showQr && res.getQrCodeData() != null) {
-                                map.put("qrCodeData", res.getQrCodeData());
+                            // the image itself is served (and revalidated by ETag) from /{id}/qr
+                            if (showQr(res, isBakery) && res.getQrContent() != null) {
+                                map.put("qrUrl", "/api/app/orders/" + res.getId() + "/qr");
                             }
 
-                            return map;
+                            return Mono.just(map);
                         }));
     }
 
+    // The image only depends on the QR payload, so the ETag is derived from it without rendering
+    @GetMapping("/{id}/qr")
+    public Mono<ResponseEntity<byte[]>> getOrderQr(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "png") String format,
+            @AuthenticationPrincipal Jwt jwt,
+            ServerWebExchange exchange
+    ) {
+        boolean svg = "svg".equalsIgnoreCase(format);
+        if (!svg && !"png".equalsIgnoreCase(format)) {
+            return Mono.error(new InvalidRequestException("Unsupported QR format: " + format));
+        }
+        Long userId = jwt.getClaim("userId");
+        List<String> roles = jwt.getClaim("roles");
+        boolean isBakery = hasRole(roles, "BAKERY");
 
+        Mono<Reservation> resMono = isBakery
+                ? reservationRepository.findByIdAndBakeryId(id, userId)
+                : reservationRepository.findByIdAndUserId(id, userId);
 
+        return resMono
+                .filter(res -> showQr(res, isBakery) && res.getQrContent() != null)
+                .switchIfEmpty(Mono.error(new NotFoundException("No QR code available for this order")))
+                .flatMap(res -> {
+                    String payload = qrPayload(res, isBakery);
+                    String etag = qrEtag(payload, svg ? "svg" : "png");
+                    if (exchange.checkNotModified(etag)) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(etag)
+                                .cacheControl(QR_CACHE_CONTROL)
+                                .<byte[]>build());
+                    }
+                    Mono<byte[]> image = svg
+                            ? qrImageRenderer.svg(payload)
+                            : qrImageRenderer.png(payload);
+                    return image.map(bytes -> ResponseEntity.ok()
+                            .contentType(svg ? SVG : MediaType.IMAGE_PNG)
+                            .eTag(etag)
+                            .cacheControl(QR_CACHE_CONTROL)
+                            .body(bytes));
+                });
+    }
 
+    private static String qrEtag(String qrContent, String format) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((format + ":" + qrContent).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
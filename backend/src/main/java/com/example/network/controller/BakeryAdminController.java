@@ -1,12 +1,17 @@
 package com.example.network.controller;
 
+import com.example.network.dto.BakerySummaryDto;
+import com.example.network.dto.CursorPage;
+import com.example.network.dto.PageCursor;
 import com.example.network.model.Bakery;
 import com.example.network.exception.InvalidRequestException;
 import com.example.network.repository.BakeryRepository;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin/bakeries")
 public class BakeryAdminController {
@@ -17,13 +22,20 @@ public class BakeryAdminController {
         this.bakeryRepository = bakeryRepository;
     }
 
-    // GET all bakeries
+    // GET one page of bakeries, newest first; follow X-Next-Cursor for the next page
     @GetMapping
-    public Flux<Bakery> getAllBakeries(@RequestParam(defaultValue = "0") int page,
-                                       @RequestParam(defaultValue = "10") int size) {
-        return bakeryRepository.findAllByOrderByIdDesc()
-                .skip((long) page * size)
-                .take(size);
+    public Mono<ResponseEntity<List<BakerySummaryDto>>> getAllBakeries(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "0") int page,
+                                                                       @RequestParam(defaultValue = "10") int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        int limit = PageCursor.pageSize(size);
+        long offset = after == null ? (long) Math.max(page, 0) * limit : 0L;
+
+        return bakeryRepository.findSummaryPage(after != null ? after.id() : null, limit + 1, offset)
+                .collectList()
+                .map(rows -> CursorPage.of(rows, limit, b -> PageCursor.after(b.getId()))
+                        .map(b -> new BakerySummaryDto(b.getId(), b.getName(), b.getPhone(), b.getPluginInstalled()))
+                        .toResponse());
     }
     @GetMapping("/count")
     public Mono<Long> getUserCount() {
@@ -50,7 +62,10 @@ public class BakeryAdminController {
                     existing.setName(bakery.getName());
                     existing.setPhone(bakery.getPhone());
                     existing.setPluginInstalled(bakery.getPluginInstalled());
-                    existing.setToken(bakery.getToken());
+                    // list rows carry no token, so an edit made from one leaves it alone
+                    if (bakery.getToken() != null) {
+                        existing.setToken(bakery.getToken());
+                    }
                     return bakeryRepository.save(existing);
                 });
     }
@@ -2,8 +2,11 @@ package com.example.network.controller;
 
 import com.example.network.dto.CompartmentDto;
 import com.example.network.dto.CompartmentDtoWithAddress;
+import com.example.network.model.Compartment;
+import com.example.network.model.Easybox;
 import com.example.network.repository.CompartmentRepository;
 import com.example.network.repository.EasyboxRepository;
+import com.example.network.service.BatchLoader;
 import com.example.network.service.CompartmentSyncService;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -47,18 +50,17 @@ public class CompartmentAdminController {
     }
     @GetMapping("")
     public Flux<CompartmentDtoWithAddress> getAllWithAddress() {
-        return compartmentRepository.findAll()
-                .flatMap(comp -> easyboxRepository.findById(comp.getEasyboxId())
-                        .switchIfEmpty(Mono.empty()) // skip compartments with missing easybox
-                        .map(box -> new CompartmentDtoWithAddress(
+        return BatchLoader.of(easyboxRepository, Easybox::getId).join(compartmentRepository.findAll(),
+                Compartment::getEasyboxId,
+                (comp, box) -> box == null ? null // skip compartments with missing easybox
+                        : new CompartmentDtoWithAddress(
                                 comp.getId(),
                                 comp.getStatus(),
                                 comp.getCondition(),
                                 comp.getSize(),
                                 comp.getTemperature(),
                                 box.getAddress()
-                        ))
-                );
+                        ));
     }
 
 
@@ -4,8 +4,10 @@ import com.example.network.model.Easybox;
 import com.example.network.model.Reservation;
 import com.example.network.exception.InvalidRequestException;
 import com.example.network.repository.CompartmentRepository;
-import com.example.network.repository.EasyboxRepository;
+import com.example.network.service.CompartmentCatalog;
+import com.example.network.service.EasyboxCache;
 import com.example.network.repository.ReservationRepository;
+import com.example.network.service.ReservationIntervalIndex;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
@@ -17,11 +19,15 @@ public class CompartmentIssueController {
 
     private final CompartmentRepository compartmentRepository;
     private final ReservationRepository reservationRepository;
-    private final EasyboxRepository easyboxRepository;
-    public CompartmentIssueController(CompartmentRepository compartmentRepository, ReservationRepository reservationRepository, EasyboxRepository easyboxRepository) {
+    private final EasyboxCache easyboxCache;
+    private final ReservationIntervalIndex intervalIndex;
+    private final CompartmentCatalog compartmentCatalog;
+    public CompartmentIssueController(CompartmentRepository compartmentRepository, ReservationRepository reservationRepository, EasyboxCache easyboxCache, ReservationIntervalIndex intervalIndex, CompartmentCatalog compartmentCatalog) {
         this.compartmentRepository = compartmentRepository;
         this.reservationRepository = reservationRepository;
-        this.easyboxRepository = easyboxRepository;
+        this.easyboxCache = easyboxCache;
+        this.intervalIndex = intervalIndex;
+        this.compartmentCatalog = compartmentCatalog;
     }
 
     @PostMapping("/{id}/report-condition")
@@ -54,7 +60,7 @@ public class CompartmentIssueController {
                 })
                 .flatMap(order -> {
                     // Step 2: find another compartment
-                    return easyboxRepository.findById(order.getEasyboxId())
+                    return easyboxCache.findById(order.getEasyboxId())
                             .flatMap(box -> findReplacementCompartment(
                                             box,
                                             order.getReservationStart(),
@@ -80,20 +86,23 @@ public class CompartmentIssueController {
             Long excludeCompartmentId,
             Long reservationId
     ) {
-        return compartmentRepository.findByEasyboxId(box.getId())
-                .filter(c -> !"broken".equalsIgnoreCase(c.getCondition()) && !"dirty".equalsIgnoreCase(c.getCondition()))
-                .filter(c -> !"busy".equalsIgnoreCase(c.getStatus()))
-                .filter(c -> !c.getId().equals(excludeCompartmentId))
-                .concatMap(c ->
-                        reservationRepository.findByCompartmentId(c.getId())
-                                .filter(r -> !"cancelled".equalsIgnoreCase(r.getStatus()) && !"expired".equalsIgnoreCase(r.getStatus()))
-                                .filter(r -> r.getReservationStart().isBefore(end) && r.getReservationEnd().isAfter(start))
-                                .hasElements()
-                                .map(hasConflict -> !hasConflict)
-                                .filter(canUse -> canUse)
-                                .map(ok -> c.getId())
+        return compartmentCatalog.replacements(box.getId(), excludeCompartmentId)
+                .concatMap(c -> isFree(c.getId(), start, end)
+                        .filter(canUse -> canUse)
+                        .map(ok -> c.getId())
                 )
                 .next();
     }
 
+    private Mono<Boolean> isFree(Long compartmentId, LocalDateTime start, LocalDateTime end) {
+        if (intervalIndex.isReady()) {
+            return Mono.just(intervalIndex.isFree(compartmentId, start, end));
+        }
+        return reservationRepository.findByCompartmentId(compartmentId)
+                .filter(r -> !"cancelled".equalsIgnoreCase(r.getStatus()) && !"expired".equalsIgnoreCase(r.getStatus()))
+                .filter(r -> ReservationIntervalIndex.overlaps(start, end, r.getReservationStart(), r.getReservationEnd()))
+                .hasElements()
+                .map(hasConflict -> !hasConflict);
+    }
+
 }
@@ -8,6 +8,7 @@ import com.example.network.exception.ConflictException;
 import com.example.network.repository.CompartmentRepository;
 import com.example.network.repository.EasyboxRepository;
 import com.example.network.service.CompartmentSyncService;
+import com.example.network.service.EasyboxLocator;
 import com.example.network.service.GeocodingService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,13 +23,16 @@ public class DeviceRegistrationController {
     private final CompartmentSyncService syncService;
     private final CompartmentRepository compartmentRepository;
     private final JwtVerifier jwtVerifier;
+    private final EasyboxLocator easyboxLocator;
     public DeviceRegistrationController(EasyboxRepository easyboxRepository,
-                                        GeocodingService  geocodingService, CompartmentSyncService syncService, CompartmentRepository compartmentRepository, JwtVerifier jwtVerifier) {
+                                        GeocodingService  geocodingService, CompartmentSyncService syncService, CompartmentRepository compartmentRepository, JwtVerifier jwtVerifier,
+                                        EasyboxLocator easyboxLocator) {
         this.easyboxRepository = easyboxRepository;
         this.geocodingService  = geocodingService;
         this.syncService = syncService;
         this.compartmentRepository = compartmentRepository;
         this.jwtVerifier = jwtVerifier;
+        this.easyboxLocator = easyboxLocator;
     }
 
     @PostMapping("/register")
@@ -52,12 +56,7 @@ public class DeviceRegistrationController {
                                 double lat = coords[0], lon = coords[1];
 
                                 return easyboxRepository.findByClientId(req.getClientId())
-                                        .switchIfEmpty(
-                                                easyboxRepository.findAll()
-                                                        .filter(box -> geocodingService.distance(
-                                                                lat, lon, box.getLatitude(), box.getLongitude()) < 10)
-                                                        .next()
-                                        )
+                                        .switchIfEmpty(easyboxLocator.findClosestWithin(lat, lon, 10))
                                         .defaultIfEmpty(new Easybox())
                                         .flatMap(box -> {
                                             if (box.getId() != null) {
@@ -91,10 +90,7 @@ public class DeviceRegistrationController {
                                                         });
                                             }
 
-                                            return easyboxRepository.findAll()
-                                                    .any(other -> geocodingService.distance(
-                                                            lat, lon,
-                                                            other.getLatitude(), other.getLongitude()) < 100)
+                                            return easyboxLocator.anyWithin(lat, lon, 100)
                                                     .flatMap(tooClose -> {
                                                         if (tooClose) {
                                                             return Mono.error(new ConflictException("Another Easybox is within 100 m"));
@@ -3,6 +3,7 @@ package com.example.network.controller;
 
 import com.example.network.dto.CompartmentDto;
 import com.example.network.dto.DeviceDetailsDto;
+import com.example.network.dto.EasyboxSummaryDto;
 import com.example.network.dto.PredefinedValuesDto;
 import com.example.network.model.Compartment;
 import com.example.network.model.Easybox;
@@ -11,6 +12,9 @@ import com.example.network.exception.NotFoundException;
 import com.example.network.repository.CompartmentRepository;
 import com.example.network.repository.EasyboxRepository;
 import com.example.network.repository.ReservationRepository;
+import com.example.network.service.ChangeEventBus;
+import com.example.network.service.ChangeEventPublisher;
+import com.example.network.service.CompartmentCatalog;
 import com.example.network.service.CompartmentSyncService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -32,17 +36,23 @@ public class EasyboxAdminController {
     private final CompartmentRepository compartmentRepository;
     private final CompartmentSyncService syncService;
     private final ReservationRepository reservationRepository;
-    public EasyboxAdminController(EasyboxRepository easyboxRepository, CompartmentRepository compartmentRepository, CompartmentSyncService syncService, ReservationRepository reservationRepository) {
+    private final ChangeEventBus changeEventBus;
+    private final CompartmentCatalog compartmentCatalog;
+    public EasyboxAdminController(EasyboxRepository easyboxRepository, CompartmentRepository compartmentRepository, CompartmentSyncService syncService, ReservationRepository reservationRepository, ChangeEventBus changeEventBus, CompartmentCatalog compartmentCatalog) {
         this.easyboxRepository = easyboxRepository;
         this.compartmentRepository = compartmentRepository;
         this.syncService = syncService;
         this.reservationRepository = reservationRepository;
+        this.changeEventBus = changeEventBus;
+        this.compartmentCatalog = compartmentCatalog;
     }
 
-    // GET all Easyboxes as a reactive stream
+    // GET all Easyboxes as a reactive stream, without device secrets
     @GetMapping()
-    public Flux<Easybox> getAllEasyboxes() {
-        return easyboxRepository.findAll();
+    public Flux<EasyboxSummaryDto> getAllEasyboxes() {
+        return easyboxRepository.findAll()
+                .map(box -> new EasyboxSummaryDto(box.getId(), box.getAddress(), box.getLatitude(),
+                        box.getLongitude(), box.getStatus(), box.getApproved(), box.getClientId()));
     }
 
     @GetMapping("/{id}/details")
@@ -50,7 +60,7 @@ public class EasyboxAdminController {
         return easyboxRepository.findById(id)
                 .switchIfEmpty(Mono.error(new NotFoundException("Easybox not found")))
                 .flatMap(easybox ->
-                        compartmentRepository.findByEasyboxId(id)
+                        compartmentCatalog.compartments(id)
                                 .map(compartment -> mapToDto(compartment))
                                 .collectList()
                                 .map(compartmentDtos -> {
@@ -87,8 +97,16 @@ public class EasyboxAdminController {
                                     return reservationRepository.save(res);
                                 })
                                 .thenMany(compartmentRepository.findByEasyboxId(id)
-                                        .flatMap(compartmentRepository::delete))
-                                .then(easyboxRepository.delete(easybox))
+                                        .flatMap(compartment -> compartmentRepository.delete(compartment)
+                                                .thenReturn(ChangeEventBus.ChangeEvent.deleted(
+                                                        ChangeEventBus.COMPARTMENT, compartment.getId(),
+                                                        ChangeEventPublisher.stateOf(compartment)))))
+                                .collectList()
+                                .flatMap(deleted -> easyboxRepository.delete(easybox)
+                                        .then(changeEventBus.publishAll(deleted))
+                                        .then(changeEventBus.publish(
+                                                ChangeEventBus.ChangeEvent.deleted(ChangeEventBus.EASYBOX, id,
+                                                        ChangeEventPublisher.stateOf(easybox)))))
                                 .then(Mono.just(ResponseEntity.noContent().build()))
                 );
     }
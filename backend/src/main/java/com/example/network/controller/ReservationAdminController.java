@@ -4,56 +4,73 @@ import com.example.network.dto.ReservationUpdateRequest;
 import com.example.network.model.Reservation;
 import com.example.network.model.User;
 import com.example.network.exception.NotFoundException;
+import com.example.network.repository.ReservationAdminQueries;
 import com.example.network.repository.ReservationRepository;
 import com.example.network.repository.BakeryRepository;
 import com.example.network.repository.EasyboxRepository;
 import com.example.network.model.Bakery;
 import com.example.network.model.Easybox;
+import com.example.network.dto.CursorPage;
+import com.example.network.dto.PageCursor;
 import com.example.network.dto.ReservationDto;
 import com.example.network.repository.UserRepository;
+import com.example.network.service.BatchLoader;
+import com.example.network.service.ChangeEventBus;
+import com.example.network.service.ChangeEventPublisher;
+import com.example.network.service.ReservationIntervalIndex;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin/reservations")
 public class ReservationAdminController {
 
     private final ReservationRepository reservationRepository;
+    private final ReservationAdminQueries adminQueries;
     private final BakeryRepository bakeryRepository;
     private final EasyboxRepository easyboxRepository;
     private final UserRepository userRepository;
+    private final ReservationIntervalIndex intervalIndex;
+    private final ChangeEventBus changeEventBus;
     public ReservationAdminController(ReservationRepository reservationRepository,
+                                      ReservationAdminQueries adminQueries,
                                       BakeryRepository bakeryRepository,
-                                      EasyboxRepository easyboxRepository, UserRepository userRepository) {
+                                      EasyboxRepository easyboxRepository, UserRepository userRepository,
+                                      ReservationIntervalIndex intervalIndex,
+                                      ChangeEventBus changeEventBus) {
         this.reservationRepository = reservationRepository;
+        this.adminQueries = adminQueries;
         this.bakeryRepository = bakeryRepository;
         this.easyboxRepository = easyboxRepository;
         this.userRepository = userRepository;
+        this.intervalIndex = intervalIndex;
+        this.changeEventBus = changeEventBus;
     }
 
-    // GET all reservations
+    // GET one page of reservations: pass the previous response's X-Next-Cursor as cursor,
+    // page is only honoured without a cursor and still walks past the skipped rows in SQL
     @GetMapping
-    public Flux<ReservationDto> getAllReservations(@RequestParam(required = false) Long bakeryId,
-                                                   @RequestParam(required = false) Long userId,
-                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryDate,
-                                                   @RequestParam(defaultValue = "0") int page,
-                                                   @RequestParam(defaultValue = "10") int size) {
-        Flux<Reservation> base = (bakeryId != null)
-                ? reservationRepository.findAllByBakeryIdOrderByReservationStartDesc(bakeryId)
-                : reservationRepository.findAllByOrderByReservationStartDesc();
+    public Mono<ResponseEntity<List<ReservationDto>>> getAllReservations(@RequestParam(required = false) Long bakeryId,
+                                                                         @RequestParam(required = false) Long userId,
+                                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryDate,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "0") int page,
+                                                                         @RequestParam(defaultValue = "10") int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        int limit = PageCursor.pageSize(size);
+        long offset = after == null ? (long) Math.max(page, 0) * limit : 0L;
 
-        return base
-                .filter(r -> userId == null || userId.equals(r.getUserId()))
-                .filter(r -> deliveryDate == null ||
-                        r.getDeliveryTime() != null &&
-                                r.getDeliveryTime().toLocalDate().isEqual(deliveryDate))
-                .skip((long) page * size)
-                .take(size)
-                .flatMap(this::toDto);
+        ReservationAdminQueries.Filter filter = new ReservationAdminQueries.Filter(bakeryId, userId, deliveryDate);
+        return adminQueries.page(filter, after, limit + 1, offset)
+                .collectList()
+                .map(rows -> CursorPage.of(rows, limit, r -> PageCursor.after(r.getReservationStart(), r.getId())))
+                .flatMap(result -> toDtos(result.rows())
+                        .map(dtos -> new CursorPage<>(dtos, result.nextCursor()).toResponse()));
     }
     @GetMapping("/count")
     public Mono<Long> countReservations(
@@ -61,20 +78,15 @@ public class ReservationAdminController {
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deliveryDate
     ) {
-        return reservationRepository.findAll()
-                .filter(r -> bakeryId == null || bakeryId.equals(r.getBakeryId()))
-                .filter(r -> userId == null || userId.equals(r.getUserId()))
-                .filter(r -> deliveryDate == null ||
-                        (r.getDeliveryTime() != null &&
-                                r.getDeliveryTime().toLocalDate().isEqual(deliveryDate)))
-                .count();
+        return adminQueries.count(new ReservationAdminQueries.Filter(bakeryId, userId, deliveryDate));
     }
 
     // GET one reservation
     @GetMapping("/{id}")
     public Mono<ReservationDto> getReservation(@PathVariable Long id) {
         return reservationRepository.findById(id)
-                .flatMap(this::toDto);
+                .flatMap(reservation -> toDtos(List.of(reservation)))
+                .map(dtos -> dtos.get(0));
     }
 
     // UPDATE reservation
@@ -96,19 +108,27 @@ public class ReservationAdminController {
     // DELETE reservation
     @DeleteMapping("/{id}")
     public Mono<Void> deleteReservation(@PathVariable Long id) {
-        return reservationRepository.deleteById(id);
+        return reservationRepository.findById(id)
+                .flatMap(reservation -> reservationRepository.delete(reservation)
+                        .doOnSuccess(v -> intervalIndex.remove(id))
+                        .then(changeEventBus.publish(ChangeEventBus.ChangeEvent.deleted(ChangeEventBus.RESERVATION, id,
+                                ChangeEventPublisher.stateOf(reservation)))));
     }
 
-    private Mono<ReservationDto> toDto(Reservation reservation) {
-        Mono<Bakery> bakeryMono  = bakeryRepository.findById(reservation.getBakeryId());
-        Mono<Easybox> easyboxMono = easyboxRepository.findById(reservation.getEasyboxId());
-        Mono<User> userMono = userRepository.findById(reservation.getUserId());
+    // one findAllById per referenced table for the whole page instead of three lookups per row
+    private Mono<List<ReservationDto>> toDtos(List<Reservation> reservations) {
+        BatchLoader<Bakery> bakeries = BatchLoader.of(bakeryRepository, Bakery::getId);
+        BatchLoader<Easybox> easyboxes = BatchLoader.of(easyboxRepository, Easybox::getId);
+        BatchLoader<User> users = BatchLoader.of(userRepository, User::getId);
 
-        return Mono.zip(bakeryMono, easyboxMono, userMono)
-                .map(tuple -> {
-                    Bakery bakery = tuple.getT1();
-                    Easybox easybox = tuple.getT2();
-                    User user = tuple.getT3();
+        return Mono.zip(
+                        bakeries.loadAll(reservations.stream().map(Reservation::getBakeryId).toList()),
+                        easyboxes.loadAll(reservations.stream().map(Reservation::getEasyboxId).toList()),
+                        users.loadAll(reservations.stream().map(Reservation::getUserId).toList()))
+                .map(tuple -> reservations.stream().map(reservation -> {
+                    Bakery bakery = tuple.getT1().get(reservation.getBakeryId());
+                    Easybox easybox = tuple.getT2().get(reservation.getEasyboxId());
+                    User user = tuple.getT3().get(reservation.getUserId());
 
                     return new ReservationDto(
                             reservation.getId(),
@@ -120,6 +140,6 @@ public class ReservationAdminController {
                             reservation.getReservationStart(),
                             reservation.getReservationEnd()
                     );
-                });
+                }).toList());
     }
 }
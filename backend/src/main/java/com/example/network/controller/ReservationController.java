@@ -2,24 +2,33 @@
 package com.example.network.controller;
 
 import com.example.network.dto.CreateReservationRequest;
+import com.example.network.dto.FreeSlotDto;
 import com.example.network.dto.RecommendedBoxesResponse;
 import com.example.network.dto.ReservationQueryRequest;
 import com.example.network.model.Reservation;
+import com.example.network.service.FreeSlotCalendarService;
 import com.example.network.service.ReservationService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/widget")
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final FreeSlotCalendarService freeSlotCalendarService;
 
-    public ReservationController(ReservationService reservationService) {
+    public ReservationController(ReservationService reservationService,
+                                 FreeSlotCalendarService freeSlotCalendarService) {
         this.reservationService = reservationService;
+        this.freeSlotCalendarService = freeSlotCalendarService;
     }
 
     @PostMapping("/reservation/available")
@@ -33,10 +42,29 @@ public class ReservationController {
                 startTime,
                 endTime,
                 request.getMinTemperature(),
-                request.getTotalDimension()
+                request.getTotalDimension(),
+                request.getLimit(),
+                request.getRadiusMeters()
         );
     }
 
+    @PostMapping("/reservation/available/batch")
+    public Flux<RecommendedBoxesResponse> getAvailableEasyboxesBatch(
+            @RequestBody List<ReservationQueryRequest> requests
+    ) {
+        return reservationService.findAvailableBoxesBatch(requests);
+    }
+
+    @GetMapping(value = "/easybox/{id}/free-slots",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<FreeSlotDto> getFreeSlots(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        return freeSlotCalendarService.freeSlots(id, from, to);
+    }
+
     @PostMapping("/reservation/hold")
     public Mono<Reservation> hold(@RequestBody CreateReservationRequest req, Authentication authentication) {
          // Inject authenticated bakery ID
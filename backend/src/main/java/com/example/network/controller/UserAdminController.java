@@ -1,13 +1,18 @@
 // src/main/java/com/example/network/controller/UserAdminController.java
 package com.example.network.controller;
 
+import com.example.network.dto.CursorPage;
+import com.example.network.dto.PageCursor;
+import com.example.network.dto.UserSummaryDto;
 import com.example.network.model.User;
 import com.example.network.exception.NotFoundException;
 import com.example.network.repository.UserRepository;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin/users")
 public class UserAdminController {
@@ -19,11 +24,18 @@ public class UserAdminController {
     }
 
     @GetMapping
-    public Flux<User> getAllUsers(@RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "10") int size) {
-        return userRepository.findAllByOrderByIdDesc()
-                .skip((long) page * size)
-                .take(size);
+    public Mono<ResponseEntity<List<UserSummaryDto>>> getAllUsers(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "0") int page,
+                                                                  @RequestParam(defaultValue = "10") int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        int limit = PageCursor.pageSize(size);
+        long offset = after == null ? (long) Math.max(page, 0) * limit : 0L;
+
+        return userRepository.findSummaryPage(after != null ? after.id() : null, limit + 1, offset)
+                .collectList()
+                .map(rows -> CursorPage.of(rows, limit, u -> PageCursor.after(u.getId()))
+                        .map(u -> new UserSummaryDto(u.getId(), u.getName(), u.getPhoneNumber()))
+                        .toResponse());
     }
     @GetMapping("/count")
     public Mono<Long> getUserCount() {
@@ -0,0 +1,28 @@
+package com.example.network.dto;
+
+/** Row of the admin bakery list, without the password hash and widget token. */
+public class BakerySummaryDto {
+    private Long id;
+    private String name;
+    private String phone;
+    private Boolean pluginInstalled;
+
+    public BakerySummaryDto(Long id, String name, String phone, Boolean pluginInstalled) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.pluginInstalled = pluginInstalled;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getPhone() { return phone; }
+    public void setPhone(String phone) { this.phone = phone; }
+
+    public Boolean getPluginInstalled() { return pluginInstalled; }
+    public void setPluginInstalled(Boolean pluginInstalled) { this.pluginInstalled = pluginInstalled; }
+}
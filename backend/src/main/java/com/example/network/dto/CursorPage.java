@@ -0,0 +1,34 @@
+package com.example.network.dto;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of an admin list plus the cursor for the next one, or null on the last page.
+ * The rows go out as the JSON body, the cursor as the {@value PageCursor#HEADER} header.
+ */
+public record CursorPage<T>(List<T> rows, String nextCursor) {
+
+    /** Cuts a page from a query that asked for {@code limit + 1} rows to learn whether more follow. */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, PageCursor> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> rows = fetched.subList(0, limit);
+        return new CursorPage<>(rows, cursorOf.apply(rows.get(limit - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(rows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(PageCursor.HEADER, nextCursor);
+        }
+        return response.body(rows);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.network.dto;
+
+/**
+ * One changed dashboard cell: {@code metric} names the dashboard endpoint, {@code key} the row
+ * (status, day, easybox) and {@code field} the column. {@code value} is the new absolute count.
+ */
+public class DashboardDeltaDto {
+    private String metric;
+    private String key;
+    private String field;
+    private long value;
+
+    public DashboardDeltaDto(String metric, String key, String field, long value) {
+        this.metric = metric;
+        this.key = key;
+        this.field = field;
+        this.value = value;
+    }
+
+    public String getMetric() { return metric; }
+    public void setMetric(String metric) { this.metric = metric; }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public String getField() { return field; }
+    public void setField(String field) { this.field = field; }
+
+    public long getValue() { return value; }
+    public void setValue(long value) { this.value = value; }
+}
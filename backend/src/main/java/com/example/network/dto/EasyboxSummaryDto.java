@@ -0,0 +1,44 @@
+package com.example.network.dto;
+
+/** Row of the admin easybox list, without the device secret. */
+public class EasyboxSummaryDto {
+    private Long id;
+    private String address;
+    private double latitude;
+    private double longitude;
+    private String status;
+    private Boolean approved;
+    private String clientId;
+
+    public EasyboxSummaryDto(Long id, String address, double latitude, double longitude,
+                             String status, Boolean approved, String clientId) {
+        this.id = id;
+        this.address = address;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.status = status;
+        this.approved = approved;
+        this.clientId = clientId;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Boolean getApproved() { return approved; }
+    public void setApproved(Boolean approved) { this.approved = approved; }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+}
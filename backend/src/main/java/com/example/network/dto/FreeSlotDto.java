@@ -0,0 +1,31 @@
+package com.example.network.dto;
+
+import java.time.LocalDateTime;
+
+public class FreeSlotDto {
+    private int temperature;
+    private int size;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    public FreeSlotDto() {}
+
+    public FreeSlotDto(int temperature, int size, LocalDateTime start, LocalDateTime end) {
+        this.temperature = temperature;
+        this.size = size;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getTemperature() { return temperature; }
+    public void setTemperature(int temperature) { this.temperature = temperature; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public LocalDateTime getStart() { return start; }
+    public void setStart(LocalDateTime start) { this.start = start; }
+
+    public LocalDateTime getEnd() { return end; }
+    public void setEnd(LocalDateTime end) { this.end = end; }
+}
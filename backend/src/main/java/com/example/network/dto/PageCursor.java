@@ -0,0 +1,51 @@
+package com.example.network.dto;
+
+import com.example.network.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position for admin list endpoints: the sort key of the last row a client saw,
+ * so the next page starts right after it instead of skipping over everything before.
+ * {@code start} is only set for lists ordered by reservation start.
+ */
+public record PageCursor(LocalDateTime start, long id) {
+
+    public static final String HEADER = "X-Next-Cursor";
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    public static PageCursor after(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor after(LocalDateTime start, long id) {
+        return new PageCursor(start, id);
+    }
+
+    public String encode() {
+        String raw = start != null ? start + "|" + id : Long.toString(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Null for a missing cursor (first page). */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return sep < 0
+                    ? after(Long.parseLong(raw))
+                    : after(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
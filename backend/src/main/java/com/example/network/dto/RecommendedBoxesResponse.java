@@ -5,6 +5,7 @@ import java.util.List;
 public class RecommendedBoxesResponse {
     private EasyboxDto recommendedBox;      // the top match
     private List<EasyboxDto> otherBoxes;    // all other matching boxes
+    private String error;                   // set instead of the boxes when this query of a batch failed
 
     public RecommendedBoxesResponse() {}
 
@@ -18,4 +19,7 @@ public class RecommendedBoxesResponse {
 
     public List<EasyboxDto> getOtherBoxes() { return otherBoxes; }
     public void setOtherBoxes(List<EasyboxDto> otherBoxes) { this.otherBoxes = otherBoxes; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
 }
@@ -7,6 +7,8 @@ public class ReservationQueryRequest {
     private String end;
     private Integer minTemperature;
     private Integer totalDimension;
+    private Integer limit;          // max boxes returned, recommended one included
+    private Double radiusMeters;    // search radius around the address
 
     public String getAddress() {
         return address;
@@ -38,4 +40,16 @@ public class ReservationQueryRequest {
     public void setTotalDimension(Integer totalDimension) {
         this.totalDimension = totalDimension;
     }
+    public Integer getLimit() {
+        return limit;
+    }
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+    public Double getRadiusMeters() {
+        return radiusMeters;
+    }
+    public void setRadiusMeters(Double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+    }
 }
@@ -0,0 +1,23 @@
+package com.example.network.dto;
+
+/** Row of the admin user list; the password hash stays on the detail view only. */
+public class UserSummaryDto {
+    private Long id;
+    private String name;
+    private String phoneNumber;
+
+    public UserSummaryDto(Long id, String name, String phoneNumber) {
+        this.id = id;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getPhoneNumber() { return phoneNumber; }
+    public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
+}
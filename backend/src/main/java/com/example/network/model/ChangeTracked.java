@@ -0,0 +1,13 @@
+package com.example.network.model;
+
+/**
+ * Entities whose saves are announced as change events. The snapshot is the publisher's record of
+ * the counted columns as last read or written; it lives on the instance, so keeping it needs no
+ * shared state, and it is neither persisted nor serialized.
+ */
+public interface ChangeTracked {
+
+    Object getChangeSnapshot();
+
+    void setChangeSnapshot(Object snapshot);
+}
@@ -1,11 +1,13 @@
 package com.example.network.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 @Table("compartment")
-public class Compartment {
+public class Compartment implements ChangeTracked {
 
     @Id
     private Long id;
@@ -17,6 +19,8 @@ public class Compartment {
 
     @Version
     private Long version;
+    @Transient
+    private Object changeSnapshot;
 
 
     public Compartment() {}
@@ -51,4 +55,9 @@ public class Compartment {
 
     public Long getVersion() { return version; }
     public void setVersion(Long version) { this.version = version; }
+
+    @Override @JsonIgnore
+    public Object getChangeSnapshot() { return changeSnapshot; }
+    @Override
+    public void setChangeSnapshot(Object changeSnapshot) { this.changeSnapshot = changeSnapshot; }
 }
@@ -1,5 +1,7 @@
 package com.example.network.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
@@ -7,7 +9,7 @@ import org.springframework.data.relational.core.mapping.Table;
 import java.time.LocalDateTime;
 
 @Table("easybox")
-public class Easybox {
+public class Easybox implements ChangeTracked {
 
     @Id
     private Long id;
@@ -24,6 +26,8 @@ public class Easybox {
     private String clientId;
     @Version
     private Long version;
+    @Transient
+    private Object changeSnapshot;
     public Easybox() {}
 
     public Easybox(String address, double latitude, double longitude, String status, String clientId) {
@@ -102,4 +106,15 @@ public class Easybox {
     public void setLastSecretRotation(LocalDateTime lastSecretRotation) {
         this.lastSecretRotation = lastSecretRotation;
     }
+
+    @Override
+    @JsonIgnore
+    public Object getChangeSnapshot() {
+        return changeSnapshot;
+    }
+
+    @Override
+    public void setChangeSnapshot(Object changeSnapshot) {
+        this.changeSnapshot = changeSnapshot;
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.network.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Table("geocode_cache")
+public class GeocodeCacheEntry {
+
+    @Id
+    private String addressKey;
+    private double latitude;
+    private double longitude;
+    private LocalDateTime fetchedAt;
+
+    public GeocodeCacheEntry() {}
+
+    public String getAddressKey() { return addressKey; }
+    public void setAddressKey(String addressKey) { this.addressKey = addressKey; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+}
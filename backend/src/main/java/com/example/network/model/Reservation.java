@@ -3,18 +3,20 @@
 package com.example.network.model;
 
 import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.LocalDateTime;
 
 @Table("reservation")
-public class Reservation {
+public class Reservation implements ChangeTracked {
 
     @Id
     private Long id;
-    private String qrCodeData;
+    private String qrContent;
 
     private LocalDateTime deliveryTime;
     private String status; // "pending", "completed"
@@ -31,6 +33,8 @@ public class Reservation {
 
     @Version
     private Long version;  //  for optimistic locking
+    @Transient
+    private Object changeSnapshot;
     private Long bakeryId;
 
     public Long getBakeryId() {
@@ -107,12 +111,12 @@ public class Reservation {
         this.userId = id;
     }
 
-    public String getQrCodeData() {
-        return qrCodeData;
+    public String getQrContent() {
+        return qrContent;
     }
 
-    public void setQrCodeData(String qrCodeData) {
-        this.qrCodeData = qrCodeData;
+    public void setQrContent(String qrContent) {
+        this.qrContent = qrContent;
     }
 
     public LocalDateTime getExpiresAt() {
@@ -123,4 +127,14 @@ public class Reservation {
         return userId;
     }
 
+    @Override
+    @JsonIgnore
+    public Object getChangeSnapshot() {
+        return changeSnapshot;
+    }
+
+    @Override
+    public void setChangeSnapshot(Object changeSnapshot) {
+        this.changeSnapshot = changeSnapshot;
+    }
 }
@@ -5,7 +5,7 @@ import com.example.network.config.JwtVerifier;
 import com.example.network.dto.CompartmentDto;
 import com.example.network.dto.MqttProperties;
 import com.example.network.model.Easybox;
-import com.example.network.repository.EasyboxRepository;
+import com.example.network.service.EasyboxCache;
 import com.example.network.service.QrCodeService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -32,15 +32,15 @@ public class MqttClientManager {
     private MqttClient client;
     private final ObjectMapper mapper = new ObjectMapper();
     private final JwtVerifier jwtVerifier;
-    private final EasyboxRepository easyboxRepository;
+    private final EasyboxCache easyboxCache;
     private volatile MonoSink<List<CompartmentDto>> currentRequestSink;
     private volatile String currentExpectedClientId;
     private final QrCodeService qrCodeService;
     private final JwtUtil jwtUtil;
-    public MqttClientManager(MqttProperties properties, JwtVerifier jwtVerifier, EasyboxRepository easyboxRepository, QrCodeService qrCodeService, JwtUtil jwtUtil) {
+    public MqttClientManager(MqttProperties properties, JwtVerifier jwtVerifier, EasyboxCache easyboxCache, QrCodeService qrCodeService, JwtUtil jwtUtil) {
         this.properties = properties;
         this.jwtVerifier = jwtVerifier;
-        this.easyboxRepository = easyboxRepository;
+        this.easyboxCache = easyboxCache;
         this.qrCodeService = qrCodeService;
         this.jwtUtil = jwtUtil;
     }
@@ -177,7 +177,7 @@ public class MqttClientManager {
                                     System.err.println("Token clientId mismatch");
                                     return Mono.empty();
                                 }
-                                return qrCodeService.handleQrScan(qrContent)
+                                return qrCodeService.handleQrScan(qrContent, clientId)
                                         .flatMap(r -> sendQrCodeResponse(clientId, true,
                                                 r.getCompartmentId(),
                                                 r.getNewReservationStatus(),
@@ -267,7 +267,7 @@ public class MqttClientManager {
     }
     private Mono<Void> sendQrCodeResponse(String clientId, boolean success,
                                           Long compartmentId, String newStatus, String errorReason) {
-        return easyboxRepository.findByClientId(clientId)
+        return easyboxCache.findByClientId(clientId)
                 .switchIfEmpty(Mono.error(new IllegalStateException("Device not found")))
                 .flatMap(box -> {
                     if (box.getSecretKey() == null) {
@@ -1,6 +1,8 @@
 package com.example.network.repository;
 
 import com.example.network.model.Bakery;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -8,5 +10,15 @@ import reactor.core.publisher.Mono;
 public interface BakeryRepository extends ReactiveCrudRepository<Bakery, Long> {
 
     Mono<Bakery> findByPhone(String phone);
-    Flux<Bakery> findAllByOrderByIdDesc();
+
+    // admin list, newest first; secrets are left out of the projection
+    @Query("""
+            SELECT id, name, phone, plugin_installed FROM bakery
+            WHERE CAST(:afterId AS BIGINT) IS NULL OR id < :afterId
+            ORDER BY id DESC
+            LIMIT :limit OFFSET :offset
+            """)
+    Flux<Bakery> findSummaryPage(@Param("afterId") Long afterId,
+                                 @Param("limit") int limit,
+                                 @Param("offset") long offset);
 }
@@ -1,10 +1,39 @@
 package com.example.network.repository;
 
 import com.example.network.model.Compartment;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 public interface CompartmentRepository extends ReactiveCrudRepository<Compartment, Long> {
 
     Flux<Compartment> findByEasyboxId(Long easyboxId);
+
+    Flux<Compartment> findByEasyboxIdIn(Collection<Long> easyboxIds);
+
+    // Usable compartments of the given boxes with no active reservation overlapping [start, end].
+    // Bounds are inclusive like the compartment_no_overlap constraint (and its GiST index expression).
+    @Query("""
+            SELECT c.* FROM compartment c
+            WHERE c.easybox_id IN (:easyboxIds)
+              AND lower(c.condition) IN ('good', 'clean')
+              AND (CAST(:minTemp AS INTEGER) IS NULL OR c.temperature = :minTemp)
+              AND (CAST(:totalDim AS INTEGER) IS NULL OR c.size >= :totalDim)
+              AND NOT EXISTS (
+                  SELECT 1 FROM reservation r
+                  WHERE r.compartment_id = c.id
+                    AND lower(coalesce(r.status, '')) NOT IN ('cancelled', 'expired')
+                    AND tsrange(r.reservation_start, r.reservation_end, '[]') && tsrange(:start, :end, '[]')
+              )
+            ORDER BY c.easybox_id, c.id
+            """)
+    Flux<Compartment> findAvailableInBoxes(@Param("easyboxIds") Collection<Long> easyboxIds,
+                                           @Param("minTemp") Integer minTemp,
+                                           @Param("totalDim") Integer totalDim,
+                                           @Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,134 @@
+package com.example.network.repository;
+
+import com.example.network.dto.CompartmentsStatusDto;
+import com.example.network.dto.DashboardStatsDto;
+import com.example.network.dto.OrdersStatusDto;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate queries behind the admin dashboard. Every method returns one row per group,
+ * so the work done in the JVM does not depend on the size of the tables.
+ */
+@Repository
+public class DashboardRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public record ReservationGroup(String status, LocalDate deliveryDay, long total) {}
+
+    public record CompartmentGroup(Long easyboxId, String status, String condition, long total) {}
+
+    public DashboardRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<DashboardStatsDto> stats() {
+        return databaseClient.sql("""
+                        SELECT (SELECT count(*) FROM easybox)     AS easyboxes,
+                               (SELECT count(*) FROM compartment) AS compartments,
+                               count(*)                            AS orders,
+                               count(*) FILTER (WHERE lower(status) = 'expired') AS expired
+                        FROM reservation
+                        """)
+                .map(row -> new DashboardStatsDto(
+                        count(row.get("easyboxes", Long.class)),
+                        count(row.get("compartments", Long.class)),
+                        count(row.get("orders", Long.class)),
+                        count(row.get("expired", Long.class))))
+                .one();
+    }
+
+    public Flux<OrdersStatusDto> ordersByStatus() {
+        return databaseClient.sql("SELECT status, count(*) AS total FROM reservation GROUP BY status ORDER BY status")
+                .map(row -> new OrdersStatusDto(row.get("status", String.class), row.get("total", Long.class)))
+                .all();
+    }
+
+    public Mono<CompartmentsStatusDto> compartmentsByStatus() {
+        return databaseClient.sql("""
+                        SELECT count(*) FILTER (WHERE status = 'free') AS free,
+                               count(*) FILTER (WHERE status = 'busy') AS busy
+                        FROM compartment
+                        """)
+                .map(row -> new CompartmentsStatusDto(row.get("free", Long.class), row.get("busy", Long.class)))
+                .one();
+    }
+
+    /** Per easybox: counts of compartments in good, dirty and broken condition. */
+    public Flux<Map<String, Object>> compartmentConditionsByEasybox() {
+        return databaseClient.sql("""
+                        SELECT easybox_id,
+                               count(*) FILTER (WHERE lower(condition) = 'good')   AS good,
+                               count(*) FILTER (WHERE lower(condition) = 'dirty')  AS dirty,
+                               count(*) FILTER (WHERE lower(condition) = 'broken') AS broken
+                        FROM compartment
+                        GROUP BY easybox_id
+                        ORDER BY easybox_id
+                        """)
+                .map(row -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("easybox", "Easybox " + row.get("easybox_id", Long.class));
+                    result.put("good", count(row.get("good", Long.class)));
+                    result.put("dirty", count(row.get("dirty", Long.class)));
+                    result.put("broken", count(row.get("broken", Long.class)));
+                    return result;
+                })
+                .all();
+    }
+
+    /** Orders per delivery day in [from, to], days without orders are omitted. */
+    public Mono<Map<LocalDate, Long>> ordersPerDeliveryDay(LocalDate from, LocalDate to) {
+        return databaseClient.sql("""
+                        SELECT CAST(delivery_time AS DATE) AS day, count(*) AS total
+                        FROM reservation
+                        WHERE delivery_time >= :from AND delivery_time < :until
+                        GROUP BY 1
+                        """)
+                .bind("from", from.atStartOfDay())
+                .bind("until", to.plusDays(1).atStartOfDay())
+                .map(row -> Map.entry(row.get("day", LocalDate.class), count(row.get("total", Long.class))))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /** Reservations per (status, delivery day), every dashboard count over reservations derives from these. */
+    public Flux<ReservationGroup> reservationGroups() {
+        return databaseClient.sql("""
+                        SELECT status, CAST(delivery_time AS DATE) AS day, count(*) AS total
+                        FROM reservation
+                        GROUP BY 1, 2
+                        """)
+                .map(row -> new ReservationGroup(row.get("status", String.class), row.get("day", LocalDate.class),
+                        count(row.get("total", Long.class))))
+                .all();
+    }
+
+    /** Compartments per (easybox, status, condition). */
+    public Flux<CompartmentGroup> compartmentGroups() {
+        return databaseClient.sql("""
+                        SELECT easybox_id, status, condition, count(*) AS total
+                        FROM compartment
+                        GROUP BY 1, 2, 3
+                        """)
+                .map(row -> new CompartmentGroup(row.get("easybox_id", Long.class), row.get("status", String.class),
+                        row.get("condition", String.class), count(row.get("total", Long.class))))
+                .all();
+    }
+
+    public Mono<Long> easyboxCount() {
+        return databaseClient.sql("SELECT count(*) AS total FROM easybox")
+                .map(row -> count(row.get("total", Long.class)))
+                .one();
+    }
+
+    private static long count(Long value) {
+        return value != null ? value : 0L;
+    }
+}
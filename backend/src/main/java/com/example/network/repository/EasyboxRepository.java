@@ -1,7 +1,10 @@
 package com.example.network.repository;
 
 import com.example.network.model.Easybox;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface EasyboxRepository extends ReactiveCrudRepository<Easybox, Long> {
@@ -9,4 +12,14 @@ public interface EasyboxRepository extends ReactiveCrudRepository<Easybox, Long>
     Mono<Easybox> findByAddressIgnoreCase(String address);
 
     Mono<Easybox> findByClientId(String clientId);
+
+    @Query("""
+            SELECT * FROM easybox
+            WHERE latitude BETWEEN :minLat AND :maxLat
+              AND longitude BETWEEN :minLon AND :maxLon
+            """)
+    Flux<Easybox> findWithinBounds(@Param("minLat") double minLat,
+                                   @Param("maxLat") double maxLat,
+                                   @Param("minLon") double minLon,
+                                   @Param("maxLon") double maxLon);
 }
@@ -0,0 +1,34 @@
+package com.example.network.repository;
+
+import com.example.network.model.GeocodeCacheEntry;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface GeocodeCacheRepository extends ReactiveCrudRepository<GeocodeCacheEntry, String> {
+
+    @Query("SELECT * FROM geocode_cache WHERE address_key = :key AND fetched_at > :notBefore")
+    Mono<GeocodeCacheEntry> findFresh(@Param("key") String key, @Param("notBefore") LocalDateTime notBefore);
+
+    @Modifying
+    @Query("""
+            INSERT INTO geocode_cache (address_key, latitude, longitude, fetched_at)
+            VALUES (:key, :lat, :lon, :fetchedAt)
+            ON CONFLICT (address_key) DO UPDATE
+                SET latitude = EXCLUDED.latitude,
+                    longitude = EXCLUDED.longitude,
+                    fetched_at = EXCLUDED.fetched_at
+            """)
+    Mono<Integer> upsert(@Param("key") String key,
+                         @Param("lat") double lat,
+                         @Param("lon") double lon,
+                         @Param("fetchedAt") LocalDateTime fetchedAt);
+
+    @Modifying
+    @Query("DELETE FROM geocode_cache WHERE fetched_at <= :notBefore")
+    Mono<Integer> deleteStale(@Param("notBefore") LocalDateTime notBefore);
+}
@@ -0,0 +1,68 @@
+package com.example.network.repository;
+
+import com.example.network.dto.PageCursor;
+import com.example.network.model.Reservation;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * The admin reservation grid's filters, composed into one SQL statement for the page and one
+ * {@code COUNT(*)} with the same {@code WHERE}. Only the filters actually given end up in the
+ * query, so the planner can pick the matching composite index instead of evaluating
+ * {@code :param IS NULL OR ...} guards.
+ */
+@Repository
+public class ReservationAdminQueries {
+
+    private final R2dbcEntityTemplate template;
+
+    public ReservationAdminQueries(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    public record Filter(Long bakeryId, Long userId, LocalDate deliveryDate) {}
+
+    /** Newest start first; with a cursor, resumes right after the last (start, id) shown. */
+    public Flux<Reservation> page(Filter filter, PageCursor after, int limit, long offset) {
+        Criteria where = where(filter);
+        if (after != null && after.start() != null) {
+            where = where.and(Criteria.where("reservationStart").lessThan(after.start())
+                    .or(Criteria.where("reservationStart").is(after.start()).and("id").lessThan(after.id())));
+        } else if (after != null) {
+            // rows without a start sort first under DESC, so everything with one is still ahead
+            where = where.and(Criteria.where("reservationStart").isNull().and("id").lessThan(after.id())
+                    .or(Criteria.where("reservationStart").isNotNull()));
+        }
+        Query query = Query.query(where)
+                .sort(Sort.by(Sort.Order.desc("reservationStart"), Sort.Order.desc("id")))
+                .limit(limit)
+                .offset(offset);
+        return template.select(Reservation.class).matching(query).all();
+    }
+
+    public Mono<Long> count(Filter filter) {
+        return template.count(Query.query(where(filter)), Reservation.class);
+    }
+
+    private static Criteria where(Filter filter) {
+        Criteria where = Criteria.empty();
+        if (filter.bakeryId() != null) {
+            where = where.and("bakeryId").is(filter.bakeryId());
+        }
+        if (filter.userId() != null) {
+            where = where.and("userId").is(filter.userId());
+        }
+        if (filter.deliveryDate() != null) {
+            where = where.and("deliveryTime").greaterThanOrEquals(filter.deliveryDate().atStartOfDay())
+                    .and("deliveryTime").lessThan(filter.deliveryDate().plusDays(1).atStartOfDay());
+        }
+        return where;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.network.repository;
 
 import com.example.network.model.Reservation;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -11,8 +13,6 @@ public interface ReservationRepository extends ReactiveCrudRepository<Reservatio
     Flux<Reservation> findByEasyboxId(Long easyboxId);
 
     Flux<Reservation>findAllByStatusAndExpiresAtBefore(String pending, LocalDateTime now);
-    Flux<Reservation> findAllByBakeryIdOrderByReservationStartDesc(Long bakeryId);
-     Flux<Reservation> findAllByOrderByReservationStartDesc();
     Flux<Reservation> findAllByUserIdOrderByReservationStartDesc(Long userId);
     Flux<Reservation> findByCompartmentId(Long id);
     Flux<Reservation> findAllByUserId(Long userId);
@@ -21,4 +21,179 @@ public interface ReservationRepository extends ReactiveCrudRepository<Reservatio
     Mono<Reservation> findByIdAndUserId(Long id, Long userId);
 
     Mono<Reservation> findByCompartmentIdAndStatus(Long compartmentId, String waitingBakeryDropOff);
+
+    Mono<Reservation> findByQrContent(String qrContent);
+
+    @Query("""
+            SELECT * FROM reservation
+            WHERE lower(coalesce(status, '')) NOT IN ('cancelled', 'expired')
+              AND (reservation_end IS NULL OR reservation_end > :since)
+            """)
+    Flux<Reservation> findActiveEndingAfter(@Param("since") LocalDateTime since);
+
+    @Query("""
+            SELECT * FROM reservation
+            WHERE easybox_id = :easyboxId
+              AND lower(coalesce(status, '')) NOT IN ('cancelled', 'expired')
+              AND reservation_start <= :to
+              AND reservation_end >= :from
+            ORDER BY reservation_start, id
+            """)
+    Flux<Reservation> findActiveByEasyboxIdBetween(@Param("easyboxId") Long easyboxId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
+    // Picks the first usable compartment of the box and inserts the pending hold in one statement.
+    // The free check mirrors compartment_no_overlap (every row, closed ranges) so the insert cannot
+    // trip it on rows the search ignores; SKIP LOCKED sends concurrent holds to different
+    // compartments, and ON CONFLICT DO NOTHING turns a lost race into an empty result.
+    @Query("""
+            WITH candidate AS (
+                SELECT c.id FROM compartment c
+                WHERE c.easybox_id = :easyboxId
+                  AND lower(c.condition) IN ('good', 'clean')
+                  AND (CAST(:minTemp AS INTEGER) IS NULL OR c.temperature = :minTemp)
+                  AND (CAST(:totalDim AS INTEGER) IS NULL OR c.size >= :totalDim)
+                  AND NOT EXISTS (
+                      SELECT 1 FROM reservation r
+                      WHERE r.compartment_id = c.id
+                        AND tsrange(r.reservation_start, r.reservation_end, '[]') && tsrange(:start, :end, '[]')
+                  )
+                ORDER BY c.id
+                LIMIT 1
+                FOR UPDATE OF c SKIP LOCKED
+            )
+            INSERT INTO reservation (delivery_time, status, expires_at, easybox_id, reservation_start,
+                                     reservation_end, compartment_id, user_id, bakery_id, version)
+            SELECT :deliveryTime, 'pending', :expiresAt, :easyboxId, :start, :end, candidate.id, :userId, :bakeryId, 0
+            FROM candidate
+            ON CONFLICT DO NOTHING
+            RETURNING *
+            """)
+    Mono<Reservation> insertHoldInFirstFreeCompartment(@Param("easyboxId") Long easyboxId,
+                                                       @Param("minTemp") Integer minTemp,
+                                                       @Param("totalDim") Integer totalDim,
+                                                       @Param("deliveryTime") LocalDateTime deliveryTime,
+                                                       @Param("start") LocalDateTime start,
+                                                       @Param("end") LocalDateTime end,
+                                                       @Param("expiresAt") LocalDateTime expiresAt,
+                                                       @Param("userId") Long userId,
+                                                       @Param("bakeryId") Long bakeryId);
+
+    // Same hold insert pinned to one compartment the allocator handed out; empty when it was taken meanwhile.
+    @Query("""
+            WITH candidate AS (
+                SELECT c.id FROM compartment c
+                WHERE c.id = :compartmentId
+                  AND c.easybox_id = :easyboxId
+                  AND NOT EXISTS (
+                      SELECT 1 FROM reservation r
+                      WHERE r.compartment_id = c.id
+                        AND tsrange(r.reservation_start, r.reservation_end, '[]') && tsrange(:start, :end, '[]')
+                  )
+                FOR UPDATE OF c SKIP LOCKED
+            )
+            INSERT INTO reservation (delivery_time, status, expires_at, easybox_id, reservation_start,
+                                     reservation_end, compartment_id, user_id, bakery_id, version)
+            SELECT :deliveryTime, 'pending', :expiresAt, :easyboxId, :start, :end, candidate.id, :userId, :bakeryId, 0
+            FROM candidate
+            ON CONFLICT DO NOTHING
+            RETURNING *
+            """)
+    Mono<Reservation> insertHoldInCompartment(@Param("compartmentId") Long compartmentId,
+                                              @Param("easyboxId") Long easyboxId,
+                                              @Param("deliveryTime") LocalDateTime deliveryTime,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end,
+                                              @Param("expiresAt") LocalDateTime expiresAt,
+                                              @Param("userId") Long userId,
+                                              @Param("bakeryId") Long bakeryId);
+
+    @Query("""
+            SELECT * FROM reservation
+            WHERE status IN ('pending', 'confirmed', 'waiting_bakery_drop_off', 'waiting_client_pick_up')
+            """)
+    Flux<Reservation> findInFlow();
+
+    // One batch of lapsed holds, oldest first, along idx_reservation_expiry; SKIP LOCKED lets a
+    // confirm that is updating a row right now win instead of blocking the purge
+    @Query("""
+            WITH lapsed AS (
+                SELECT id FROM reservation
+                WHERE status = 'pending'
+                  AND expires_at < :now
+                  AND mod(coalesce(easybox_id, 0), :partitions) = :partition
+                ORDER BY expires_at
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            DELETE FROM reservation r
+            USING lapsed
+            WHERE r.id = lapsed.id
+            RETURNING r.*
+            """)
+    Flux<Reservation> deleteExpiredHolds(@Param("now") LocalDateTime now, @Param("limit") int limit,
+                                         @Param("partitions") int partitions,
+                                         @Param("partition") int partition);
+
+    // ---- lifecycle transitions, one statement each; version is bumped so entity saves racing them fail.
+    // Replicas split the rows by mod(easybox_id, :partitions) = :partition; (1, 0) covers everything.
+
+    @Query("""
+            UPDATE reservation r
+            SET status = 'cancelled', version = coalesce(r.version, 0) + 1
+            FROM easybox e
+            WHERE e.id = r.easybox_id
+              AND e.status IS DISTINCT FROM 'active'
+              AND r.status IN ('pending', 'confirmed', 'waiting_bakery_drop_off', 'waiting_client_pick_up')
+              AND r.reservation_start <= :startsBefore
+              AND mod(coalesce(r.easybox_id, 0), :partitions) = :partition
+            RETURNING r.*
+            """)
+    Flux<Reservation> cancelOnInactiveBoxes(@Param("startsBefore") LocalDateTime startsBefore,
+                                            @Param("partitions") int partitions,
+                                            @Param("partition") int partition);
+
+    @Query("""
+            WITH expired AS (
+                UPDATE reservation
+                SET status = 'expired', version = coalesce(version, 0) + 1
+                WHERE status = 'waiting_bakery_drop_off'
+                  AND reservation_start < :startedBefore
+                  AND mod(coalesce(easybox_id, 0), :partitions) = :partition
+                RETURNING *
+            ), freed AS (
+                UPDATE compartment c
+                SET status = 'free', version = coalesce(c.version, 0) + 1
+                WHERE c.id IN (SELECT compartment_id FROM expired)
+            )
+            SELECT * FROM expired
+            """)
+    Flux<Reservation> expireMissedDropOffs(@Param("startedBefore") LocalDateTime startedBefore,
+                                           @Param("partitions") int partitions,
+                                           @Param("partition") int partition);
+
+    @Query("""
+            UPDATE reservation
+            SET status = 'waiting_bakery_drop_off', version = coalesce(version, 0) + 1
+            WHERE status = 'confirmed'
+              AND reservation_start < :now
+              AND mod(coalesce(easybox_id, 0), :partitions) = :partition
+            RETURNING *
+            """)
+    Flux<Reservation> openStartedDropOffs(@Param("now") LocalDateTime now,
+                                          @Param("partitions") int partitions,
+                                          @Param("partition") int partition);
+
+    @Query("""
+            UPDATE reservation
+            SET status = 'waiting_cleaning', version = coalesce(version, 0) + 1
+            WHERE status = 'waiting_client_pick_up'
+              AND reservation_end < :endsBefore
+              AND mod(coalesce(easybox_id, 0), :partitions) = :partition
+            RETURNING *
+            """)
+    Flux<Reservation> closeEndedPickUps(@Param("endsBefore") LocalDateTime endsBefore,
+                                        @Param("partitions") int partitions,
+                                        @Param("partition") int partition);
 }
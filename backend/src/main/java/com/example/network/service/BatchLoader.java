@@ -0,0 +1,77 @@
+package com.example.network.service;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Resolves the entities referenced by a stream of rows with one {@code findAllById} per window
+ * instead of one {@code findById} per row, and remembers what it has already loaded (including
+ * ids that do not exist). Create one per request: the memo is never invalidated.
+ */
+public final class BatchLoader<T> {
+
+    public static final int DEFAULT_WINDOW = 100;
+
+    private final Function<Collection<Long>, Flux<T>> fetch;
+    private final Function<T, Long> idOf;
+    private final Map<Long, Optional<T>> memo = new ConcurrentHashMap<>();
+
+    private BatchLoader(Function<Collection<Long>, Flux<T>> fetch, Function<T, Long> idOf) {
+        this.fetch = fetch;
+        this.idOf = idOf;
+    }
+
+    public static <T> BatchLoader<T> of(ReactiveCrudRepository<T, Long> repository, Function<T, Long> idOf) {
+        return new BatchLoader<>(repository::findAllById, idOf);
+    }
+
+    /** The entities found for the given ids, keyed by id; unknown and null ids are left out. */
+    public Mono<Map<Long, T>> loadAll(Collection<Long> ids) {
+        return Mono.defer(() -> {
+            Set<Long> wanted = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id != null) {
+                    wanted.add(id);
+                }
+            }
+            List<Long> missing = wanted.stream().filter(id -> !memo.containsKey(id)).toList();
+            Mono<Void> load = missing.isEmpty() ? Mono.empty() : fetch.apply(missing)
+                    .doOnNext(entity -> memo.put(idOf.apply(entity), Optional.of(entity)))
+                    .then(Mono.fromRunnable(() -> missing.forEach(id -> memo.putIfAbsent(id, Optional.empty()))));
+            return load.then(Mono.fromSupplier(() -> {
+                Map<Long, T> found = new HashMap<>();
+                for (Long id : wanted) {
+                    memo.getOrDefault(id, Optional.empty()).ifPresent(entity -> found.put(id, entity));
+                }
+                return found;
+            }));
+        });
+    }
+
+    /**
+     * Pairs every row with the entity it references, in source order. {@code combine} gets null
+     * when the entity does not exist and may return null to drop the row.
+     */
+    public <E, R> Flux<R> join(Flux<E> source, Function<E, Long> keyOf, BiFunction<E, T, R> combine) {
+        return source
+                .buffer(DEFAULT_WINDOW)
+                .concatMap(window -> loadAll(window.stream().map(keyOf).filter(Objects::nonNull).toList())
+                        .flatMapIterable(found -> window.stream()
+                                .map(row -> combine.apply(row, found.get(keyOf.apply(row))))
+                                .filter(Objects::nonNull)
+                                .toList()));
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.network.service;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Fans entity change events out to every replica over Postgres LISTEN/NOTIFY.
+ * Events are compact ({@code type|id|version|op|origin|before|after}): they say which row changed
+ * and, where the writer knows them, the counted columns before and after the change, so
+ * aggregating consumers can apply the difference while the others reload or evict on their side. {@link #subscribe} listeners are only called for changes made by
+ * other replicas, since local write paths already update their own in-memory state;
+ * {@link #subscribeAll} listeners also see this replica's own changes. Notifications sent while
+ * the listening connection is down are lost, so consumers keep their own expiry as a backstop.
+ */
+@Component
+public class ChangeEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventBus.class);
+
+    static final String CHANNEL = "easybox_changes";
+
+    public static final String EASYBOX = "easybox";
+    public static final String COMPARTMENT = "compartment";
+    public static final String RESERVATION = "reservation";
+
+    /**
+     * The columns consumers count by, as of one side of a change (see
+     * {@link ChangeEventPublisher#stateOf}). {@link #ABSENT} means the row did not exist on that
+     * side; an event carries null instead of a state when that side is not known.
+     */
+    public record State(boolean exists, List<String> values) {
+
+        public static final State ABSENT = new State(false, List.of());
+
+        public static State of(String... values) {
+            return new State(true, Arrays.asList(values));
+        }
+
+        public String value(int index) {
+            return index < values.size() ? values.get(index) : null;
+        }
+    }
+
+    public record ChangeEvent(String entityType, long id, long version, boolean deleted, State before, State after) {
+
+        public static ChangeEvent saved(String entityType, Long id, Long version) {
+            return saved(entityType, id, version, null, null);
+        }
+
+        public static ChangeEvent saved(String entityType, Long id, Long version, State before, State after) {
+            return new ChangeEvent(entityType, id, version != null ? version : 0L, false, before, after);
+        }
+
+        public static ChangeEvent deleted(String entityType, Long id) {
+            return deleted(entityType, id, null);
+        }
+
+        public static ChangeEvent deleted(String entityType, Long id, State before) {
+            return new ChangeEvent(entityType, id, -1L, true, before, State.ABSENT);
+        }
+    }
+
+    // LISTEN holds its connection for the life of the application, so it is not taken from the pool
+    private final ConnectionFactory listenConnectionFactory;
+    private final DatabaseClient databaseClient;
+    private final String origin;
+    private final Map<String, List<Consumer<ChangeEvent>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<ChangeEvent>>> allListeners = new ConcurrentHashMap<>();
+    private volatile Disposable subscription;
+
+    public ChangeEventBus(ConnectionFactory connectionFactory,
+                          DatabaseClient databaseClient,
+                          ClusterJobRunner clusterJobs) {
+        this.listenConnectionFactory = unpooled(connectionFactory);
+        this.databaseClient = databaseClient;
+        this.origin = clusterJobs.instanceId();
+    }
+
+    /** Registers a consumer for changes of one entity type made on other replicas. */
+    public void subscribe(String entityType, Consumer<ChangeEvent> listener) {
+        listeners.computeIfAbsent(entityType, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /** Registers a consumer for changes of one entity type made anywhere, this replica included. */
+    public void subscribeAll(String entityType, Consumer<ChangeEvent> listener) {
+        allListeners.computeIfAbsent(entityType, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public Mono<Void> publish(ChangeEvent event) {
+        return publishAll(List.of(event));
+    }
+
+    /**
+     * One round trip for any number of events, on the caller's connection: inside a transaction
+     * Postgres holds the notifications back until commit and drops them on rollback, and local
+     * listeners are called after commit to match. A failed NOTIFY fails the publish like any
+     * other statement of the caller.
+     */
+    public Mono<Void> publishAll(Collection<ChangeEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        List<ChangeEvent> batch = List.copyOf(events);
+        String[] payloads = batch.stream().map(this::encode).toArray(String[]::new);
+        return databaseClient.sql("SELECT pg_notify(:channel, p) FROM unnest(CAST(:payloads AS text[])) AS p")
+                .bind("channel", CHANNEL)
+                .bind("payloads", payloads)
+                .fetch().rowsUpdated()
+                .then(dispatchLocally(batch));
+    }
+
+    // mirrors NOTIFY semantics for this replica's own listeners: inside a transaction, only after commit
+    private Mono<Void> dispatchLocally(List<ChangeEvent> events) {
+        Runnable dispatch = () -> events.forEach(event -> dispatch(allListeners, event));
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .map(tsm -> {
+                    tsm.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(dispatch);
+                        }
+                    });
+                    return true;
+                })
+                .onErrorResume(NoTransactionException.class, e -> Mono.just(false))
+                .defaultIfEmpty(false)
+                .flatMap(deferred -> deferred ? Mono.<Void>empty() : Mono.fromRunnable(dispatch))
+                .then();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = listen()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Change event listener reconnecting: {}",
+                                signal.failure().getMessage())))
+                .subscribe(event -> {
+                    dispatch(listeners, event);
+                    dispatch(allListeners, event);
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private Flux<ChangeEvent> listen() {
+        return Flux.usingWhen(
+                Mono.from(listenConnectionFactory.create()),
+                connection -> {
+                    PostgresqlConnection pg = unwrap(connection);
+                    return pg.createStatement("LISTEN " + CHANNEL).execute()
+                            .flatMap(PostgresqlResult::getRowsUpdated)
+                            .doOnComplete(() -> log.info("Listening for change events on {}", CHANNEL))
+                            .thenMany(pg.getNotifications())
+                            .filter(n -> CHANNEL.equals(n.getName()) && n.getParameter() != null)
+                            .handle((n, sink) -> {
+                                ChangeEvent event = decode(n.getParameter());
+                                if (event != null) {
+                                    sink.next(event);
+                                }
+                            });
+                },
+                connection -> Mono.from(connection.close())
+        );
+    }
+
+    private void dispatch(Map<String, List<Consumer<ChangeEvent>>> registry, ChangeEvent event) {
+        List<Consumer<ChangeEvent>> forType = registry.get(event.entityType());
+        if (forType == null) {
+            return;
+        }
+        for (Consumer<ChangeEvent> listener : forType) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Change event listener failed for {} {}: {}", event.entityType(), event.id(), e.getMessage());
+            }
+        }
+    }
+
+    private String encode(ChangeEvent event) {
+        return event.entityType() + "|" + event.id() + "|" + event.version() + "|"
+                + (event.deleted() ? "d" : "u") + "|" + origin + "|"
+                + encode(event.before()) + "|" + encode(event.after());
+    }
+
+    // "?" unknown, "-" absent, otherwise "+" and the url-encoded values, "~" standing for null
+    private static String encode(State state) {
+        if (state == null) {
+            return "?";
+        }
+        if (!state.exists()) {
+            return "-";
+        }
+        return "+" + state.values().stream()
+                .map(v -> v == null ? "~" : URLEncoder.encode(v, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(","));
+    }
+
+    // returns null for our own events and for anything we cannot read
+    private ChangeEvent decode(String payload) {
+        String[] parts = payload.split("\\|", 7);
+        if ((parts.length != 5 && parts.length != 7) || origin.equals(parts[4])) {
+            return null;
+        }
+        try {
+            // five parts: sent by a replica that does not attach states yet
+            State before = parts.length == 7 ? decodeState(parts[5]) : null;
+            State after = parts.length == 7 ? decodeState(parts[6]) : null;
+            return new ChangeEvent(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), "d".equals(parts[3]),
+                    before, after);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed change event: {}", payload);
+            return null;
+        }
+    }
+
+    private static State decodeState(String encoded) {
+        if (encoded.equals("?")) {
+            return null;
+        }
+        if (encoded.equals("-")) {
+            return State.ABSENT;
+        }
+        if (!encoded.startsWith("+")) {
+            throw new IllegalArgumentException("Bad state " + encoded);
+        }
+        if (encoded.length() == 1) {
+            return State.of();
+        }
+        List<String> values = new ArrayList<>();
+        for (String v : encoded.substring(1).split(",", -1)) {
+            values.add(v.equals("~") ? null : URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return new State(true, values);
+    }
+
+    // the pool wraps the driver's factory; connections made by the latter are plain, unpooled ones
+    @SuppressWarnings("unchecked")
+    private static ConnectionFactory unpooled(ConnectionFactory connectionFactory) {
+        ConnectionFactory current = connectionFactory;
+        while (current instanceof Wrapped<?> wrapped && ((Wrapped<Object>) wrapped).unwrap() instanceof ConnectionFactory inner) {
+            current = inner;
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = ((Wrapped<Object>) wrapped).unwrap();
+        }
+        if (current instanceof PostgresqlConnection pg) {
+            return pg;
+        }
+        throw new IllegalStateException("LISTEN/NOTIFY needs a Postgres connection, got " + connection.getClass());
+    }
+}
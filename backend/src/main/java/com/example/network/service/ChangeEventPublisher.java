@@ -0,0 +1,108 @@
+package com.example.network.service;
+
+import com.example.network.model.ChangeTracked;
+import com.example.network.model.Compartment;
+import com.example.network.model.Easybox;
+import com.example.network.model.Reservation;
+import com.example.network.service.ChangeEventBus.State;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterConvertCallback;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Announces every repository save of the shared entities on the {@link ChangeEventBus}.
+ * The notify runs in the save's reactive context, so inside a transaction it is only
+ * delivered once that transaction commits. Each event carries the counted columns as they were
+ * when the entity was loaded (or absent for an insert) and as they were saved; entities this
+ * callback never saw loaded, e.g. built by hand around an existing id, go out with an unknown
+ * before-state.
+ */
+@Component
+public class ChangeEventPublisher implements AfterConvertCallback<Object>, BeforeConvertCallback<Object>,
+        AfterSaveCallback<Object> {
+
+    private final ChangeEventBus changeEventBus;
+
+    public ChangeEventPublisher(ChangeEventBus changeEventBus) {
+        this.changeEventBus = changeEventBus;
+    }
+
+    /** Reservation: status and delivery day. */
+    public static State stateOf(Reservation r) {
+        return State.of(r.getStatus(), r.getDeliveryTime() != null ? r.getDeliveryTime().toLocalDate().toString() : null);
+    }
+
+    /** Compartment: easybox id, status and condition. */
+    public static State stateOf(Compartment c) {
+        return State.of(c.getEasyboxId() != null ? c.getEasyboxId().toString() : null, c.getStatus(), c.getCondition());
+    }
+
+    /** Easybox: only whether it exists. */
+    public static State stateOf(Easybox e) {
+        return State.of();
+    }
+
+    @Override
+    public Publisher<Object> onAfterConvert(Object entity, SqlIdentifier table) {
+        State state = stateOfEntity(entity);
+        if (state != null) {
+            ((ChangeTracked) entity).setChangeSnapshot(state);
+        }
+        return Mono.just(entity);
+    }
+
+    // a versioned entity without a version is inserted, so it had no previous state
+    @Override
+    public Publisher<Object> onBeforeConvert(Object entity, SqlIdentifier table) {
+        if (stateOfEntity(entity) != null && versionOf(entity) == null) {
+            ((ChangeTracked) entity).setChangeSnapshot(State.ABSENT);
+        }
+        return Mono.just(entity);
+    }
+
+    @Override
+    public Publisher<Object> onAfterSave(Object entity, OutboundRow outboundRow, SqlIdentifier table) {
+        State after = stateOfEntity(entity);
+        if (after == null) {
+            return Mono.just(entity);
+        }
+        ChangeTracked tracked = (ChangeTracked) entity;
+        State before = tracked.getChangeSnapshot() instanceof State loaded ? loaded : null;
+        tracked.setChangeSnapshot(after);
+        ChangeEventBus.ChangeEvent event;
+        if (entity instanceof Reservation r) {
+            event = ChangeEventBus.ChangeEvent.saved(ChangeEventBus.RESERVATION, r.getId(), r.getVersion(), before, after);
+        } else if (entity instanceof Compartment c) {
+            event = ChangeEventBus.ChangeEvent.saved(ChangeEventBus.COMPARTMENT, c.getId(), c.getVersion(), before, after);
+        } else {
+            Easybox e = (Easybox) entity;
+            event = ChangeEventBus.ChangeEvent.saved(ChangeEventBus.EASYBOX, e.getId(), e.getVersion(), before, after);
+        }
+        return changeEventBus.publish(event).thenReturn(entity);
+    }
+
+    private static State stateOfEntity(Object entity) {
+        if (entity instanceof Reservation r) {
+            return stateOf(r);
+        } else if (entity instanceof Compartment c) {
+            return stateOf(c);
+        } else if (entity instanceof Easybox e) {
+            return stateOf(e);
+        }
+        return null;
+    }
+
+    private static Long versionOf(Object entity) {
+        if (entity instanceof Reservation r) {
+            return r.getVersion();
+        } else if (entity instanceof Compartment c) {
+            return c.getVersion();
+        }
+        return ((Easybox) entity).getVersion();
+    }
+}
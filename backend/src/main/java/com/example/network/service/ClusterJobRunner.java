@@ -0,0 +1,207 @@
+package com.example.network.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coordinates scheduled jobs across backend replicas.
+ * <ul>
+ *   <li>{@link #singleton} jobs run on one replica at a time, guarded by a Postgres advisory lock
+ *       held on a dedicated connection, or by a row in {@code job_lease} when
+ *       {@code cluster.jobs.lock-mode=lease} (e.g. behind a transaction-pooling proxy).</li>
+ *   <li>{@link #partitioned} jobs run everywhere, each replica on its own {@link Partition} of the
+ *       rows, derived from the live members heartbeating in {@code cluster_member}.</li>
+ * </ul>
+ * Jobs that only touch in-process state (caches, the MQTT client) stay plain {@code @Scheduled}.
+ */
+@Component
+public class ClusterJobRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterJobRunner.class);
+
+    // first key of the two-int advisory lock space, keeps our locks apart from anyone else's
+    private static final int ADVISORY_NAMESPACE = 0x45427831;
+    private static final Duration MEMBER_TIMEOUT = Duration.ofSeconds(45);
+    private static final Duration MEMBER_RETENTION = Duration.ofMinutes(10);
+
+    public record Partition(int index, int count) {
+        public static final Partition ALL = new Partition(0, 1);
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient databaseClient;
+    private final MeterRegistry meterRegistry;
+    private final boolean useLeaseTable;
+    private final String instanceId;
+
+    private volatile Partition partition = Partition.ALL;
+
+    public ClusterJobRunner(ConnectionFactory connectionFactory,
+                            DatabaseClient databaseClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${cluster.jobs.lock-mode:advisory}") String lockMode) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = databaseClient;
+        this.meterRegistry = meterRegistry;
+        this.useLeaseTable = "lease".equalsIgnoreCase(lockMode);
+        this.instanceId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    public Partition currentPartition() {
+        return partition;
+    }
+
+    /** Runs the job unless another replica currently holds it; completes empty when skipped. */
+    public <T> Mono<T> singleton(String name, Duration maxDuration, Supplier<Mono<T>> job) {
+        Mono<T> guarded = useLeaseTable
+                ? withLease(name, maxDuration, job)
+                : withAdvisoryLock(name, job);
+        return record(name, guarded);
+    }
+
+    /** Runs this replica's share of the job. */
+    public <T> Mono<T> partitioned(String name, Function<Partition, Mono<T>> job) {
+        return record(name, Mono.defer(() -> job.apply(partition)));
+    }
+
+    @Scheduled(fixedRate = 15_000)
+    public void heartbeat() {
+        databaseClient.sql("""
+                        INSERT INTO cluster_member (instance_id, heartbeat_at) VALUES (:id, now())
+                        ON CONFLICT (instance_id) DO UPDATE SET heartbeat_at = now()
+                        """)
+                .bind("id", instanceId)
+                .fetch().rowsUpdated()
+                .then(databaseClient.sql("DELETE FROM cluster_member WHERE heartbeat_at < now() - make_interval(secs => :secs)")
+                        .bind("secs", MEMBER_RETENTION.toSeconds())
+                        .fetch().rowsUpdated())
+                .thenMany(databaseClient.sql("""
+                                SELECT instance_id FROM cluster_member
+                                WHERE heartbeat_at >= now() - make_interval(secs => :secs)
+                                ORDER BY instance_id
+                                """)
+                        .bind("secs", MEMBER_TIMEOUT.toSeconds())
+                        .map(row -> row.get("instance_id", String.class))
+                        .all())
+                .collectList()
+                .subscribe(this::updatePartition,
+                        error -> log.warn("Cluster heartbeat failed: {}", error.getMessage()));
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            databaseClient.sql("DELETE FROM cluster_member WHERE instance_id = :id")
+                    .bind("id", instanceId)
+                    .fetch().rowsUpdated()
+                    .block(Duration.ofSeconds(5));
+        } catch (RuntimeException e) {
+            log.warn("Could not leave cluster membership: {}", e.getMessage());
+        }
+    }
+
+    private void updatePartition(List<String> members) {
+        int index = members.indexOf(instanceId);
+        Partition next = index < 0 ? Partition.ALL : new Partition(index, members.size());
+        if (!next.equals(partition)) {
+            log.info("Job partition is now {} of {}", next.index(), next.count());
+        }
+        partition = next;
+    }
+
+    // session-level lock on a connection taken out of the pool for the whole run; it is always
+    // unlocked before the connection goes back, and dies with it if the process does
+    private <T> Mono<T> withAdvisoryLock(String name, Supplier<Mono<T>> job) {
+        return Mono.defer(() -> {
+            boolean[] held = {false};
+            return Mono.usingWhen(
+                    Mono.from(connectionFactory.create()),
+                    connection -> queryBoolean(connection, "SELECT pg_try_advisory_lock($1, hashtext($2))", name)
+                            .doOnNext(locked -> held[0] = locked)
+                            .flatMap(locked -> locked ? job.get() : Mono.empty()),
+                    connection -> unlockAndClose(connection, name, held[0]),
+                    (connection, error) -> unlockAndClose(connection, name, held[0]),
+                    connection -> unlockAndClose(connection, name, held[0])
+            );
+        });
+    }
+
+    private Mono<Void> unlockAndClose(Connection connection, String name, boolean held) {
+        Mono<Boolean> unlock = held
+                ? queryBoolean(connection, "SELECT pg_advisory_unlock($1, hashtext($2))", name)
+                        .onErrorResume(e -> Mono.empty())
+                : Mono.empty();
+        return unlock.then(Mono.from(connection.close()));
+    }
+
+    private Mono<Boolean> queryBoolean(Connection connection, String sql, String name) {
+        return Flux.from(connection.createStatement(sql)
+                        .bind("$1", ADVISORY_NAMESPACE)
+                        .bind("$2", name)
+                        .execute())
+                .flatMap(result -> result.map((row, meta) -> Boolean.TRUE.equals(row.get(0, Boolean.class))))
+                .next()
+                .defaultIfEmpty(false);
+    }
+
+    private <T> Mono<T> withLease(String name, Duration maxDuration, Supplier<Mono<T>> job) {
+        Mono<Boolean> acquire = databaseClient.sql("""
+                        INSERT INTO job_lease (name, owner, expires_at)
+                        VALUES (:name, :owner, now() + make_interval(secs => :secs))
+                        ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at
+                        WHERE job_lease.expires_at < now() OR job_lease.owner = EXCLUDED.owner
+                        """)
+                .bind("name", name)
+                .bind("owner", instanceId)
+                .bind("secs", maxDuration.toSeconds())
+                .fetch().rowsUpdated()
+                .map(count -> count > 0);
+        Mono<Long> release = databaseClient.sql("UPDATE job_lease SET expires_at = now() WHERE name = :name AND owner = :owner")
+                .bind("name", name)
+                .bind("owner", instanceId)
+                .fetch().rowsUpdated()
+                .onErrorResume(e -> Mono.empty());
+
+        return acquire.flatMap(acquired -> acquired
+                ? job.get().materialize().flatMap(signal -> release.then(Mono.just(signal))).dematerialize()
+                : Mono.empty());
+    }
+
+    // jobs emit a value when they ran, so an empty completion means the lock was held elsewhere
+    private <T> Mono<T> record(String name, Mono<T> run) {
+        return run
+                .doOnSuccess(value -> meterRegistry.counter("cluster.jobs.runs", "job", name, "outcome",
+                        value != null ? "ran" : "skipped").increment())
+                .doOnError(error -> meterRegistry.counter("cluster.jobs.runs", "job", name, "outcome", "failed")
+                        .increment());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "backend";
+        }
+    }
+}
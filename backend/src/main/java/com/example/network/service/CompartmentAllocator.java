@@ -0,0 +1,155 @@
+package com.example.network.service;
+
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out distinct candidate compartments to concurrent holds on the same Easybox, so a burst
+ * of bookings on a popular locker spreads over its compartments instead of all racing for the
+ * first one. Claims live under a per-box stripe lock and are only held for the duration of the
+ * insert; the database exclusion constraint still decides the final outcome.
+ */
+@Component
+public class CompartmentAllocator {
+
+    private static final int STRIPES = 64;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final ReservationRepository reservationRepository;
+    private final CompartmentCatalog compartmentCatalog;
+    private final ReservationIntervalIndex intervalIndex;
+    private final ReservationTransitionScheduler transitionScheduler;
+    private final ChangeEventBus changeEventBus;
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<Long, Set<Long>> claimedByBox = new ConcurrentHashMap<>();
+
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+    private final Timer waitTime;
+
+    public CompartmentAllocator(ReservationRepository reservationRepository,
+                                CompartmentCatalog compartmentCatalog,
+                                ReservationIntervalIndex intervalIndex,
+                                ReservationTransitionScheduler transitionScheduler,
+                                ChangeEventBus changeEventBus,
+                                MeterRegistry meterRegistry) {
+        this.reservationRepository = reservationRepository;
+        this.compartmentCatalog = compartmentCatalog;
+        this.intervalIndex = intervalIndex;
+        this.transitionScheduler = transitionScheduler;
+        this.changeEventBus = changeEventBus;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.attempts  = meterRegistry.counter("easybox.allocation.attempts");
+        this.conflicts = meterRegistry.counter("easybox.allocation.conflicts");
+        this.exhausted = meterRegistry.counter("easybox.allocation.fallbacks");
+        this.waitTime  = meterRegistry.timer("easybox.allocation.wait");
+    }
+
+    public record Hold(Long easyboxId,
+                       Integer minTemperature,
+                       Integer totalDimension,
+                       LocalDateTime deliveryTime,
+                       LocalDateTime start,
+                       LocalDateTime end,
+                       LocalDateTime expiresAt,
+                       Long userId,
+                       Long bakeryId) {}
+
+    /** Inserts the pending hold into a free compartment of the box, or completes empty when none is left. */
+    public Mono<Reservation> allocate(Hold hold) {
+        Timer.Sample wait = Timer.start();
+        return compartmentCatalog.usableIds(hold.easyboxId(), hold.minTemperature(), hold.totalDimension())
+                .flatMap(candidates -> attempt(hold, candidates, new HashSet<>(), 0, wait));
+    }
+
+    private Mono<Reservation> attempt(Hold hold, List<Long> candidates, Set<Long> tried, int attemptNo,
+                                      Timer.Sample wait) {
+        Long compartmentId = attemptNo < MAX_ATTEMPTS ? claimNext(hold, candidates, tried) : null;
+        if (attemptNo == 0) {
+            wait.stop(waitTime);
+        }
+        if (compartmentId == null) {
+            // nothing left to hand out here: let the database pick among what it still sees as free
+            exhausted.increment();
+            return insertAnywhere(hold).switchIfEmpty(Mono.defer(() -> insertAnywhere(hold)));
+        }
+
+        attempts.increment();
+        return reservationRepository.insertHoldInCompartment(compartmentId, hold.easyboxId(), hold.deliveryTime(),
+                        hold.start(), hold.end(), hold.expiresAt(), hold.userId(), hold.bakeryId())
+                .flatMap(this::recordHold)
+                .doFinally(signal -> release(hold.easyboxId(), compartmentId))
+                .switchIfEmpty(Mono.defer(() -> {
+                    conflicts.increment();
+                    return attempt(hold, candidates, tried, attemptNo + 1, wait);
+                }));
+    }
+
+    private Mono<Reservation> insertAnywhere(Hold hold) {
+        return reservationRepository.insertHoldInFirstFreeCompartment(hold.easyboxId(), hold.minTemperature(),
+                        hold.totalDimension(), hold.deliveryTime(), hold.start(), hold.end(), hold.expiresAt(),
+                        hold.userId(), hold.bakeryId())
+                .flatMap(this::recordHold);
+    }
+
+    // the custom insert bypasses the save callbacks, so feed the in-memory views and other replicas
+    // directly, with the same rollback handling the callbacks have
+    private Mono<Reservation> recordHold(Reservation hold) {
+        return intervalIndex.trackUntilRollback(hold)
+                .then(transitionScheduler.scheduleUntilRollback(hold))
+                .then(changeEventBus.publish(ChangeEventBus.ChangeEvent.saved(ChangeEventBus.RESERVATION,
+                        hold.getId(), hold.getVersion(), ChangeEventBus.State.ABSENT,
+                        ChangeEventPublisher.stateOf(hold))))
+                .thenReturn(hold);
+    }
+
+    private Long claimNext(Hold hold, List<Long> candidates, Set<Long> tried) {
+        synchronized (stripeOf(hold.easyboxId())) {
+            Set<Long> claimed = claimedByBox.computeIfAbsent(hold.easyboxId(), id -> new HashSet<>());
+            for (Long id : candidates) {
+                if (tried.contains(id) || claimed.contains(id)) {
+                    continue;
+                }
+                if (intervalIndex.isReady() && !intervalIndex.isFree(id, hold.start(), hold.end())) {
+                    continue;
+                }
+                tried.add(id);
+                claimed.add(id);
+                return id;
+            }
+            return null;
+        }
+    }
+
+    private void release(Long easyboxId, Long compartmentId) {
+        synchronized (stripeOf(easyboxId)) {
+            Set<Long> claimed = claimedByBox.get(easyboxId);
+            if (claimed != null) {
+                claimed.remove(compartmentId);
+                if (claimed.isEmpty()) {
+                    claimedByBox.remove(easyboxId);
+                }
+            }
+        }
+    }
+
+    private Object stripeOf(Long easyboxId) {
+        return stripes[Math.floorMod(easyboxId.hashCode(), STRIPES)];
+    }
+}
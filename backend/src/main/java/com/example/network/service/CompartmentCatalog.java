@@ -0,0 +1,373 @@
+package com.example.network.service;
+
+import com.example.network.model.Compartment;
+import com.example.network.repository.CompartmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory catalog of every Easybox's compartments, so availability filtering by size,
+ * temperature and condition never reads the compartment table. Each box is an immutable set of
+ * parallel arrays sorted by id, swapped wholesale whenever one of its compartments changes:
+ * on every repository save, on every change announced on the {@link ChangeEventBus} (bulk
+ * statements, deletes, other replicas) and after a device sync. Boxes are warmed at startup and
+ * otherwise loaded on first use. Compartments handed out are fresh copies.
+ */
+@Component
+public class CompartmentCatalog implements AfterSaveCallback<Compartment> {
+
+    private static final Logger log = LoggerFactory.getLogger(CompartmentCatalog.class);
+
+    // condition/status flags, one byte per compartment
+    private static final byte USABLE = 1;   // condition good or clean
+    private static final byte BUSY   = 2;
+    private static final byte DIRTY  = 4;
+    private static final byte BROKEN = 8;
+
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    private final CompartmentRepository compartmentRepository;
+    private final Map<Long, Box> boxes = new ConcurrentHashMap<>();
+    private final Map<Long, Long> boxByCompartment = new ConcurrentHashMap<>();
+    // one String instance per distinct status/condition value
+    private final Map<String, String> vocabulary = new ConcurrentHashMap<>();
+    // bumped under this on every change, so a load that raced with one is not cached
+    private volatile long generation;
+
+    private final Counter loads;
+
+    public CompartmentCatalog(CompartmentRepository compartmentRepository,
+                              ChangeEventBus changeEventBus,
+                              MeterRegistry meterRegistry) {
+        this.compartmentRepository = compartmentRepository;
+        changeEventBus.subscribeAll(ChangeEventBus.COMPARTMENT, this::onCompartmentChange);
+        changeEventBus.subscribeAll(ChangeEventBus.EASYBOX, event -> {
+            if (event.deleted()) {
+                dropBox(event.id());
+            }
+        });
+        this.loads = meterRegistry.counter("compartment.catalog.loads");
+        meterRegistry.gauge("compartment.catalog.boxes", boxes, Map::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long seen = generation;
+        compartmentRepository.findAll()
+                .collect(Collectors.groupingBy(Compartment::getEasyboxId))
+                .subscribe(
+                        grouped -> {
+                            grouped.forEach((easyboxId, compartments) -> cache(easyboxId, compartments, seen));
+                            log.info("Compartment catalog loaded {} easyboxes", grouped.size());
+                        },
+                        error -> log.error("Failed to load compartment catalog", error)
+                );
+    }
+
+    /** All compartments of the box, by id. */
+    public Flux<Compartment> compartments(Long easyboxId) {
+        return box(easyboxId).flatMapIterable(box -> box.select(i -> true));
+    }
+
+    /**
+     * Compartments in usable condition matching the temperature and minimum size, box by box in
+     * the given order and by id within a box.
+     */
+    public Flux<Compartment> usable(List<Long> easyboxIds, Integer temperature, Integer minSize) {
+        return boxes(easyboxIds).flatMapIterable(loaded -> {
+            List<Compartment> result = new ArrayList<>();
+            for (Long id : easyboxIds) {
+                Box box = loaded.get(id);
+                if (box != null) {
+                    result.addAll(box.select(i -> box.matches(i, temperature, minSize)));
+                }
+            }
+            return result;
+        });
+    }
+
+    /** Ids of the usable compartments of one box matching temperature and minimum size, ascending. */
+    public Mono<List<Long>> usableIds(Long easyboxId, Integer temperature, Integer minSize) {
+        return box(easyboxId).map(box -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < box.ids.length; i++) {
+                if (box.matches(i, temperature, minSize)) {
+                    ids.add(box.ids[i]);
+                }
+            }
+            return ids;
+        });
+    }
+
+    /** Compartments of the box not flagged busy, dirty or broken, except the given one. */
+    public Flux<Compartment> replacements(Long easyboxId, Long excludeCompartmentId) {
+        return box(easyboxId).flatMapIterable(box -> box.select(i ->
+                (box.flags[i] & (BUSY | DIRTY | BROKEN)) == 0
+                        && (excludeCompartmentId == null || box.ids[i] != excludeCompartmentId)));
+    }
+
+    /** Reloads one box from the database, e.g. after its compartments were synced from the device. */
+    public Mono<Void> refresh(Long easyboxId) {
+        bump();
+        return compartmentRepository.findByEasyboxId(easyboxId)
+                .collectList()
+                .doOnNext(compartments -> {
+                    loads.increment();
+                    synchronized (this) {
+                        install(easyboxId, compartments);
+                    }
+                })
+                .then();
+    }
+
+    @Override
+    public Publisher<Compartment> onAfterSave(Compartment entity, OutboundRow outboundRow, SqlIdentifier table) {
+        apply(entity);
+        // the change event reconciles after a commit; a rollback has none, so reload the box instead
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(tsm -> tsm.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return status == STATUS_COMMITTED || entity.getEasyboxId() == null
+                                ? Mono.empty()
+                                : refresh(entity.getEasyboxId()).onErrorResume(e -> Mono.empty());
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .thenReturn(entity);
+    }
+
+    private void onCompartmentChange(ChangeEventBus.ChangeEvent event) {
+        if (event.deleted()) {
+            removeCompartment(event.id());
+            return;
+        }
+        compartmentRepository.findById(event.id())
+                .doOnNext(this::apply)
+                .switchIfEmpty(Mono.fromRunnable(() -> removeCompartment(event.id())))
+                .subscribe(
+                        compartment -> { },
+                        error -> log.warn("Failed to reload compartment {}: {}", event.id(), error.getMessage())
+                );
+    }
+
+    private Mono<Box> box(Long easyboxId) {
+        if (easyboxId == null) {
+            return Mono.empty();
+        }
+        Box cached = boxes.get(easyboxId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+            long seen = generation;
+            return compartmentRepository.findByEasyboxId(easyboxId)
+                    .collectList()
+                    .map(compartments -> {
+                        loads.increment();
+                        return cache(easyboxId, compartments, seen);
+                    });
+        });
+    }
+
+    private Mono<Map<Long, Box>> boxes(Collection<Long> easyboxIds) {
+        return Mono.defer(() -> {
+            Map<Long, Box> found = new ConcurrentHashMap<>();
+            List<Long> missing = new ArrayList<>();
+            for (Long id : easyboxIds) {
+                Box box = id != null ? boxes.get(id) : null;
+                if (box != null) {
+                    found.put(id, box);
+                } else if (id != null) {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return Mono.just(found);
+            }
+            long seen = generation;
+            return compartmentRepository.findByEasyboxIdIn(missing)
+                    .collect(Collectors.groupingBy(Compartment::getEasyboxId))
+                    .map(grouped -> {
+                        loads.increment();
+                        for (Long id : missing) {
+                            found.put(id, cache(id, grouped.getOrDefault(id, List.of()), seen));
+                        }
+                        return found;
+                    });
+        });
+    }
+
+    // keeps the loaded box unless something changed while it was being read
+    private synchronized Box cache(Long easyboxId, List<Compartment> compartments, long seen) {
+        if (generation != seen) {
+            return newBox(easyboxId, compartments);
+        }
+        Box existing = boxes.get(easyboxId);
+        return existing != null ? existing : install(easyboxId, compartments);
+    }
+
+    private synchronized void apply(Compartment c) {
+        if (c.getId() == null) {
+            return;
+        }
+        bump();
+        Long previousBox = boxByCompartment.get(c.getId());
+        if (previousBox != null && !previousBox.equals(c.getEasyboxId())) {
+            removeCompartment(c.getId());
+        }
+        Box box = c.getEasyboxId() != null ? boxes.get(c.getEasyboxId()) : null;
+        if (box != null) {
+            List<Compartment> compartments = box.select(i -> box.ids[i] != c.getId());
+            compartments.add(c);
+            install(c.getEasyboxId(), compartments);
+        }
+    }
+
+    private synchronized void removeCompartment(Long compartmentId) {
+        bump();
+        Long easyboxId = boxByCompartment.remove(compartmentId);
+        Box box = easyboxId != null ? boxes.get(easyboxId) : null;
+        if (box != null) {
+            install(easyboxId, box.select(i -> box.ids[i] != compartmentId));
+        }
+    }
+
+    private synchronized void dropBox(Long easyboxId) {
+        bump();
+        Box removed = boxes.remove(easyboxId);
+        if (removed != null) {
+            for (long id : removed.ids) {
+                boxByCompartment.remove(id);
+            }
+        }
+    }
+
+    private synchronized long bump() {
+        return ++generation;
+    }
+
+    // callers hold this
+    private Box install(Long easyboxId, List<Compartment> compartments) {
+        Box previous = boxes.get(easyboxId);
+        if (previous != null) {
+            for (long id : previous.ids) {
+                boxByCompartment.remove(id, easyboxId);
+            }
+        }
+        Box box = newBox(easyboxId, compartments);
+        boxes.put(easyboxId, box);
+        for (long id : box.ids) {
+            boxByCompartment.put(id, easyboxId);
+        }
+        return box;
+    }
+
+    private Box newBox(Long easyboxId, List<Compartment> compartments) {
+        List<Compartment> sorted = compartments.stream()
+                .filter(c -> c.getId() != null)
+                .sorted(Comparator.comparing(Compartment::getId))
+                .toList();
+        int n = sorted.size();
+        Box box = new Box(easyboxId, n);
+        for (int i = 0; i < n; i++) {
+            Compartment c = sorted.get(i);
+            box.ids[i] = c.getId();
+            box.sizes[i] = c.getSize();
+            box.temperatures[i] = c.getTemperature();
+            box.flags[i] = flags(c);
+            box.statuses[i] = intern(c.getStatus());
+            box.conditions[i] = intern(c.getCondition());
+            box.versions[i] = c.getVersion() != null ? c.getVersion() : NO_VERSION;
+        }
+        return box;
+    }
+
+    private String intern(String value) {
+        return value != null ? vocabulary.computeIfAbsent(value, v -> v) : null;
+    }
+
+    private static byte flags(Compartment c) {
+        byte flags = 0;
+        String condition = c.getCondition();
+        if ("good".equalsIgnoreCase(condition) || "clean".equalsIgnoreCase(condition)) {
+            flags |= USABLE;
+        }
+        if ("dirty".equalsIgnoreCase(condition)) {
+            flags |= DIRTY;
+        }
+        if ("broken".equalsIgnoreCase(condition)) {
+            flags |= BROKEN;
+        }
+        if ("busy".equalsIgnoreCase(c.getStatus())) {
+            flags |= BUSY;
+        }
+        return flags;
+    }
+
+    /** One box's compartments as parallel arrays; never modified once installed. */
+    private static final class Box {
+        final Long easyboxId;
+        final long[] ids;
+        final int[] sizes;
+        final int[] temperatures;
+        final byte[] flags;
+        final String[] statuses;
+        final String[] conditions;
+        final long[] versions;
+
+        Box(Long easyboxId, int n) {
+            this.easyboxId = easyboxId;
+            ids = new long[n];
+            sizes = new int[n];
+            temperatures = new int[n];
+            flags = new byte[n];
+            statuses = new String[n];
+            conditions = new String[n];
+            versions = new long[n];
+        }
+
+        boolean matches(int i, Integer temperature, Integer minSize) {
+            return (flags[i] & USABLE) != 0
+                    && (temperature == null || temperatures[i] == temperature)
+                    && (minSize == null || sizes[i] >= minSize);
+        }
+
+        List<Compartment> select(IntPredicate include) {
+            List<Compartment> result = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (include.test(i)) {
+                    Compartment c = new Compartment(ids[i], easyboxId, sizes[i], temperatures[i],
+                            statuses[i], conditions[i]);
+                    c.setVersion(versions[i] != NO_VERSION ? versions[i] : null);
+                    result.add(c);
+                }
+            }
+            return result;
+        }
+    }
+}
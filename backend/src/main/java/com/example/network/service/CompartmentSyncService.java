@@ -7,7 +7,6 @@ import com.example.network.exception.ConfigurationException;
 import com.example.network.exception.InvalidRequestException;
 import com.example.network.mqtt.MqttClientManager;
 import com.example.network.repository.CompartmentRepository;
-import com.example.network.repository.EasyboxRepository;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -16,14 +15,17 @@ import reactor.core.publisher.Mono;
 public class CompartmentSyncService {
 
     private final CompartmentRepository compartmentRepository;
-    private final EasyboxRepository easyboxRepository;
+    private final EasyboxCache easyboxCache;
     private final MqttClientManager mqttClientManager;
+    private final CompartmentCatalog compartmentCatalog;
     public CompartmentSyncService(
-            CompartmentRepository compartmentRepository, EasyboxRepository easyboxRepository, MqttClientManager mqttClientManager
+            CompartmentRepository compartmentRepository, EasyboxCache easyboxCache, MqttClientManager mqttClientManager,
+            CompartmentCatalog compartmentCatalog
     ) {
         this.compartmentRepository = compartmentRepository;
-        this.easyboxRepository = easyboxRepository;
+        this.easyboxCache = easyboxCache;
         this.mqttClientManager = mqttClientManager;
+        this.compartmentCatalog = compartmentCatalog;
     }
     public Mono<Void> updateStatus(Long id, String status) {
         return compartmentRepository.findById(id)
@@ -37,7 +39,7 @@ public class CompartmentSyncService {
     public Mono<Void> syncCompartmentsForEasybox(Long easyboxId) {
         System.out.println(" Syncing compartments for easyboxId=" + easyboxId);
 
-        return easyboxRepository.findById(easyboxId)
+        return easyboxCache.findById(easyboxId)
                 .switchIfEmpty(Mono.error(new InvalidRequestException("Easybox " + easyboxId + " not found")))
                 .flatMap(easybox -> {
                     String clientId = easybox.getClientId();
@@ -47,7 +49,7 @@ public class CompartmentSyncService {
                     return mqttClientManager.requestCompartments(clientId)
                             .flatMapMany(Flux::fromIterable)
                             .flatMap(dto -> upsertCompartment(easybox, dto))
-                            .then();
+                            .then(compartmentCatalog.refresh(easyboxId));
                 });
     }
 
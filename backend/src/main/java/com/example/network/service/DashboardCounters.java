@@ -0,0 +1,319 @@
+package com.example.network.service;
+
+import com.example.network.dto.CompartmentsStatusDto;
+import com.example.network.dto.DashboardDeltaDto;
+import com.example.network.dto.DashboardStatsDto;
+import com.example.network.dto.OrdersStatusDto;
+import com.example.network.repository.DashboardRepository;
+import com.example.network.repository.DashboardRepository.CompartmentGroup;
+import com.example.network.repository.DashboardRepository.ReservationGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.function.Tuples;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory counters behind the admin dashboard, one per chart cell. They are seeded from the
+ * per-group aggregates in {@link DashboardRepository} and then moved by the {@link ChangeEventBus}:
+ * every write path, on any replica, announces the counted columns of a row before and after the
+ * change, and the row's old contribution is swapped for the new one. Nothing is kept per row, so
+ * memory follows the number of groups, not of reservations. An event whose before or after side
+ * is unknown marks the counters stale and they are re-seeded from the aggregates within seconds;
+ * the same happens periodically as a backstop for lost notifications. The aggregates are read from
+ * one REPEATABLE READ snapshot; a notification arriving meanwhile cannot be placed before or after
+ * that snapshot, so it marks the fresh counters stale rather than being applied twice. Dashboard
+ * views read the counters without touching the database, and every changed cell is pushed to
+ * {@link #stream()}.
+ */
+@Component
+public class DashboardCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardCounters.class);
+
+    public static final String STATS = "stats";
+    public static final String ORDERS_STATUS = "orders-status";
+    public static final String ORDERS_WEEKLY = "orders-weekly";
+    public static final String COMPARTMENTS_STATUS = "compartments-status";
+    public static final String COMPARTMENTS_BY_CONDITION = "compartments-by-condition";
+
+    private static final String TOTALS = "totals";
+    private static final String ALL = "all";
+    private static final Set<String> CONDITIONS = Set.of("good", "dirty", "broken");
+    private static final int STREAM_BUFFER = 1024;
+
+    private record Cell(String metric, String key, String field) {}
+
+    private final DashboardRepository dashboardRepository;
+    private final TransactionalOperator snapshot;
+
+    // everything below is guarded by this; deltas are emitted under the same lock
+    private final Map<String, Map<Cell, Long>> counts = new HashMap<>();
+    private final Sinks.Many<DashboardDeltaDto> deltas = Sinks.many().multicast().directBestEffort();
+
+    private final AtomicBoolean reseeding = new AtomicBoolean();
+    private volatile boolean stale;
+    private volatile boolean ready;
+
+    public DashboardCounters(DashboardRepository dashboardRepository,
+                             ChangeEventBus changeEventBus,
+                             ReactiveTransactionManager transactionManager) {
+        this.dashboardRepository = dashboardRepository;
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        definition.setReadOnly(true);
+        this.snapshot = TransactionalOperator.create(transactionManager, definition);
+        for (String type : List.of(ChangeEventBus.RESERVATION, ChangeEventBus.COMPARTMENT, ChangeEventBus.EASYBOX)) {
+            changeEventBus.subscribeAll(type, this::onChange);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reseed();
+    }
+
+    @Scheduled(fixedRate = 900_000, initialDelay = 900_000)
+    public void reseed() {
+        if (!reseeding.compareAndSet(false, true)) {
+            return;
+        }
+        stale = false;
+        // one after another on the transaction's connection, so all three see the same snapshot
+        dashboardRepository.reservationGroups().collectList()
+                .flatMap(reservationGroups -> dashboardRepository.compartmentGroups().collectList()
+                        .flatMap(compartmentGroups -> dashboardRepository.easyboxCount()
+                                .map(easyboxes -> Tuples.of(reservationGroups, compartmentGroups, easyboxes))))
+                .as(snapshot::transactional)
+                .doFinally(signal -> reseeding.set(false))
+                .subscribe(
+                        loaded -> replaceAll(loaded.getT1(), loaded.getT2(), loaded.getT3()),
+                        error -> {
+                            stale = true;
+                            log.error("Failed to load dashboard counters", error);
+                        }
+                );
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public void reseedIfStale() {
+        if (stale) {
+            reseed();
+        }
+    }
+
+    public synchronized DashboardStatsDto stats() {
+        return new DashboardStatsDto(
+                get(new Cell(STATS, TOTALS, "totalEasyboxes")),
+                get(new Cell(STATS, TOTALS, "activeCompartments")),
+                get(new Cell(STATS, TOTALS, "totalOrders")),
+                get(new Cell(STATS, TOTALS, "expiredOrders")));
+    }
+
+    public synchronized List<OrdersStatusDto> ordersByStatus() {
+        Map<String, Long> byStatus = new TreeMap<>();
+        metric(ORDERS_STATUS).forEach((cell, value) -> byStatus.put(cell.key(), value));
+        List<OrdersStatusDto> result = new ArrayList<>();
+        byStatus.forEach((status, total) -> result.add(new OrdersStatusDto(status, total)));
+        return result;
+    }
+
+    public synchronized CompartmentsStatusDto compartmentsByStatus() {
+        return new CompartmentsStatusDto(get(new Cell(COMPARTMENTS_STATUS, ALL, "free")),
+                get(new Cell(COMPARTMENTS_STATUS, ALL, "busy")));
+    }
+
+    public synchronized List<Map<String, Object>> compartmentConditionsByEasybox() {
+        Map<Long, Map<String, Object>> byBox = new TreeMap<>();
+        for (Cell cell : metric(COMPARTMENTS_BY_CONDITION).keySet()) {
+            byBox.computeIfAbsent(Long.valueOf(cell.key()), id -> {
+                Map<String, Object> row = new HashMap<>();
+                row.put("easybox", "Easybox " + id);
+                for (String condition : CONDITIONS) {
+                    row.put(condition, get(new Cell(COMPARTMENTS_BY_CONDITION, cell.key(), condition)));
+                }
+                return row;
+            });
+        }
+        return new ArrayList<>(byBox.values());
+    }
+
+    /** Same shape as {@link DashboardRepository#ordersPerDeliveryDay}. */
+    public synchronized Map<LocalDate, Long> ordersPerDeliveryDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> result = new HashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            long total = get(new Cell(ORDERS_WEEKLY, day.toString(), "orders"));
+            if (total > 0) {
+                result.put(day, total);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Every current cell, then each change as it happens. A subscriber that falls too far behind
+     * is completed with an error and should reconnect for a fresh snapshot.
+     */
+    public Flux<DashboardDeltaDto> stream() {
+        return Flux.defer(() -> {
+            Sinks.Many<DashboardDeltaDto> buffer = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<DashboardDeltaDto>get(STREAM_BUFFER).get());
+            List<DashboardDeltaDto> snapshot = new ArrayList<>();
+            Disposable live;
+            synchronized (this) {
+                live = deltas.asFlux().subscribe(delta -> {
+                    if (buffer.tryEmitNext(delta).isFailure()) {
+                        buffer.tryEmitError(new IllegalStateException("Dashboard stream fell behind"));
+                    }
+                });
+                counts.values().forEach(cells -> cells.forEach((cell, value) -> snapshot.add(toDelta(cell, value))));
+            }
+            return Flux.concat(Flux.fromIterable(snapshot), buffer.asFlux())
+                    .doFinally(signal -> live.dispose());
+        });
+    }
+
+    private synchronized void replaceAll(List<ReservationGroup> reservationGroups,
+                                         List<CompartmentGroup> compartmentGroups,
+                                         long easyboxCount) {
+        Map<String, Map<Cell, Long>> previous = new HashMap<>();
+        counts.forEach((metric, cells) -> previous.put(metric, new HashMap<>(cells)));
+
+        counts.clear();
+        Set<Cell> touched = new LinkedHashSet<>();
+        for (ReservationGroup g : reservationGroups) {
+            countReservations(g.status(), g.deliveryDay() != null ? g.deliveryDay().toString() : null, g.total(), touched);
+        }
+        for (CompartmentGroup g : compartmentGroups) {
+            countCompartments(g.easyboxId() != null ? g.easyboxId().toString() : null, g.status(), g.condition(),
+                    g.total(), touched);
+        }
+        bump(new Cell(STATS, TOTALS, "totalEasyboxes"), easyboxCount, touched);
+
+        previous.values().forEach(cells -> cells.keySet().forEach(touched::add));
+        touched.removeIf(cell -> get(cell) == previous.getOrDefault(cell.metric(), Map.of()).getOrDefault(cell, 0L));
+        emit(touched);
+        ready = true;
+        log.info("Dashboard counters loaded: {} reservation groups, {} compartment groups, {} easyboxes",
+                reservationGroups.size(), compartmentGroups.size(), easyboxCount);
+    }
+
+    private synchronized void onChange(ChangeEventBus.ChangeEvent event) {
+        if (event.before() == null || event.after() == null) {
+            stale = true;
+            return;
+        }
+        if (reseeding.get()) {
+            // it may or may not be in the snapshot being read; the next reseed settles it
+            stale = true;
+        }
+        if (!ready) {
+            return;
+        }
+        Set<Cell> touched = new LinkedHashSet<>();
+        apply(event, touched);
+        emit(touched);
+    }
+
+    private void apply(ChangeEventBus.ChangeEvent event, Set<Cell> touched) {
+        if (event.before().equals(event.after())) {
+            return;
+        }
+        count(event.entityType(), event.before(), -1, touched);
+        count(event.entityType(), event.after(), 1, touched);
+    }
+
+    // value positions as laid out by ChangeEventPublisher.stateOf
+    private void count(String entityType, ChangeEventBus.State state, long sign, Set<Cell> touched) {
+        if (!state.exists()) {
+            return;
+        }
+        switch (entityType) {
+            case ChangeEventBus.RESERVATION -> countReservations(state.value(0), state.value(1), sign, touched);
+            case ChangeEventBus.COMPARTMENT ->
+                    countCompartments(state.value(0), state.value(1), state.value(2), sign, touched);
+            case ChangeEventBus.EASYBOX -> bump(new Cell(STATS, TOTALS, "totalEasyboxes"), sign, touched);
+            default -> { }
+        }
+    }
+
+    private void countReservations(String status, String deliveryDay, long n, Set<Cell> touched) {
+        bump(new Cell(STATS, TOTALS, "totalOrders"), n, touched);
+        if (status != null) {
+            bump(new Cell(ORDERS_STATUS, status, "count"), n, touched);
+            if ("expired".equalsIgnoreCase(status)) {
+                bump(new Cell(STATS, TOTALS, "expiredOrders"), n, touched);
+            }
+        }
+        if (deliveryDay != null) {
+            bump(new Cell(ORDERS_WEEKLY, deliveryDay, "orders"), n, touched);
+        }
+    }
+
+    private void countCompartments(String easyboxId, String status, String condition, long n, Set<Cell> touched) {
+        bump(new Cell(STATS, TOTALS, "activeCompartments"), n, touched);
+        if ("free".equals(status) || "busy".equals(status)) {
+            bump(new Cell(COMPARTMENTS_STATUS, ALL, status), n, touched);
+        }
+        if (easyboxId != null) {
+            // keeps boxes whose compartments are in none of the charted conditions on the chart
+            bump(new Cell(COMPARTMENTS_BY_CONDITION, easyboxId, "compartments"), n, touched);
+            String normalized = condition != null ? condition.toLowerCase() : null;
+            if (normalized != null && CONDITIONS.contains(normalized)) {
+                bump(new Cell(COMPARTMENTS_BY_CONDITION, easyboxId, normalized), n, touched);
+            }
+        }
+    }
+
+    private void bump(Cell cell, long delta, Set<Cell> touched) {
+        if (delta == 0) {
+            return;
+        }
+        metric(cell.metric()).merge(cell, delta, (a, b) -> a + b == 0 ? null : a + b);
+        touched.add(cell);
+    }
+
+    private Map<Cell, Long> metric(String metric) {
+        return counts.computeIfAbsent(metric, m -> new HashMap<>());
+    }
+
+    private long get(Cell cell) {
+        return metric(cell.metric()).getOrDefault(cell, 0L);
+    }
+
+    private void emit(Set<Cell> touched) {
+        touched.stream()
+                .sorted(Comparator.comparing(Cell::metric).thenComparing(Cell::key).thenComparing(Cell::field))
+                .forEach(cell -> deltas.tryEmitNext(toDelta(cell, get(cell))));
+    }
+
+    private static DashboardDeltaDto toDelta(Cell cell, long value) {
+        String key = COMPARTMENTS_BY_CONDITION.equals(cell.metric()) ? "Easybox " + cell.key() : cell.key();
+        return new DashboardDeltaDto(cell.metric(), key, cell.field(), value);
+    }
+}
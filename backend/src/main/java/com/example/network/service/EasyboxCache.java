@@ -0,0 +1,149 @@
+package com.example.network.service;
+
+import com.example.network.model.Easybox;
+import com.example.network.repository.EasyboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-through cache of easyboxes by id and by MQTT client id, for the paths that only read
+ * them (device JWT checks, QR scans, lookups while serving requests). Entries expire after
+ * {@code easybox.cache.ttl} and are evicted on every save and on every change or deletion
+ * announced on the {@link ChangeEventBus}, so approvals and secret rotations take effect right
+ * away; the TTL bounds staleness when a notification is lost. Handlers that modify an easybox
+ * keep loading it from the repository, since the cached instance is shared.
+ */
+@Component
+public class EasyboxCache implements AfterSaveCallback<Easybox> {
+
+    private record Entry(Easybox easybox, long expiresAtNanos) {}
+
+    private final EasyboxRepository easyboxRepository;
+    private final long ttlNanos;
+
+    // access-ordered LRU by id plus the clientId index into it, both guarded by byId's monitor
+    private final LinkedHashMap<Long, Entry> byId;
+    private final Map<String, Long> idByClientId = new HashMap<>();
+    // bumped on every eviction, so a load that raced with a write does not put back the old row
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public EasyboxCache(EasyboxRepository easyboxRepository,
+                        ChangeEventBus changeEventBus,
+                        MeterRegistry meterRegistry,
+                        @Value("${easybox.cache.ttl:5m}") Duration ttl,
+                        @Value("${easybox.cache.max-entries:10000}") int maxEntries) {
+        this.easyboxRepository = easyboxRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.byId = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxEntries) {
+                    idByClientId.remove(eldest.getValue().easybox().getClientId());
+                    return true;
+                }
+                return false;
+            }
+        };
+        changeEventBus.subscribeAll(ChangeEventBus.EASYBOX, event -> evict(event.id()));
+
+        this.hits   = meterRegistry.counter("easybox.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("easybox.cache.requests", "result", "miss");
+        meterRegistry.gauge("easybox.cache.size", byId, cache -> {
+            synchronized (cache) {
+                return cache.size();
+            }
+        });
+    }
+
+    public Mono<Easybox> findById(Long id) {
+        if (id == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long seen;
+            synchronized (byId) {
+                Easybox cached = fresh(byId.get(id));
+                if (cached != null) {
+                    hits.increment();
+                    return Mono.just(cached);
+                }
+                seen = generation;
+            }
+            misses.increment();
+            return easyboxRepository.findById(id).doOnNext(box -> put(box, seen));
+        });
+    }
+
+    public Mono<Easybox> findByClientId(String clientId) {
+        if (clientId == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long seen;
+            synchronized (byId) {
+                Long id = idByClientId.get(clientId);
+                Easybox cached = id != null ? fresh(byId.get(id)) : null;
+                if (cached != null) {
+                    hits.increment();
+                    return Mono.just(cached);
+                }
+                seen = generation;
+            }
+            misses.increment();
+            return easyboxRepository.findByClientId(clientId).doOnNext(box -> put(box, seen));
+        });
+    }
+
+    @Override
+    public Publisher<Easybox> onAfterSave(Easybox entity, OutboundRow outboundRow, SqlIdentifier table) {
+        evict(entity.getId());
+        return Mono.just(entity);
+    }
+
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (byId) {
+            generation++;
+            Entry removed = byId.remove(id);
+            if (removed != null) {
+                idByClientId.remove(removed.easybox().getClientId());
+            }
+        }
+    }
+
+    private Easybox fresh(Entry entry) {
+        return entry != null && entry.expiresAtNanos() - System.nanoTime() > 0 ? entry.easybox() : null;
+    }
+
+    private void put(Easybox box, long seen) {
+        synchronized (byId) {
+            if (generation != seen || box.getId() == null) {
+                return;
+            }
+            Entry previous = byId.put(box.getId(), new Entry(box, System.nanoTime() + ttlNanos));
+            if (previous != null && previous.easybox().getClientId() != null) {
+                idByClientId.remove(previous.easybox().getClientId());
+            }
+            if (box.getClientId() != null) {
+                idByClientId.put(box.getClientId(), box.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.network.service;
+
+import com.example.network.model.Easybox;
+import com.example.network.repository.EasyboxRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+
+/**
+ * Nearest-Easybox lookups that only read the boxes inside a bounding box around the point,
+ * so the cost follows the number of nearby boxes rather than the size of the fleet. The box is
+ * computed on the same sphere as {@link GeocodingService#distance}, so it always contains the
+ * search circle.
+ */
+@Service
+public class EasyboxLocator {
+
+    private final EasyboxRepository easyboxRepository;
+    private final GeocodingService geocodingService;
+
+    public EasyboxLocator(EasyboxRepository easyboxRepository, GeocodingService geocodingService) {
+        this.easyboxRepository = easyboxRepository;
+        this.geocodingService = geocodingService;
+    }
+
+    /** Up to {@code limit} boxes strictly closer than {@code radiusMeters}, nearest first. */
+    public Flux<Easybox> findNearest(double lat, double lon, double radiusMeters, int limit) {
+        return withinBoundingBox(lat, lon, radiusMeters)
+                .map(box -> new Candidate(box, distanceTo(box, lat, lon)))
+                .filter(c -> c.distance < radiusMeters)
+                .sort(Comparator.comparingDouble(Candidate::distance)
+                        .thenComparing(c -> c.box.getId()))
+                .take(limit)
+                .map(Candidate::box);
+    }
+
+    public Mono<Easybox> findClosestWithin(double lat, double lon, double radiusMeters) {
+        return findNearest(lat, lon, radiusMeters, 1).next();
+    }
+
+    public Mono<Boolean> anyWithin(double lat, double lon, double radiusMeters) {
+        return findNearest(lat, lon, radiusMeters, 1).hasElements();
+    }
+
+    public double distanceTo(Easybox box, double lat, double lon) {
+        return geocodingService.distance(box.getLatitude(), box.getLongitude(), lat, lon);
+    }
+
+    private Flux<Easybox> withinBoundingBox(double lat, double lon, double radiusMeters) {
+        double angle = radiusMeters / GeocodingService.EARTH_RADIUS_METERS;
+        double minLat = lat - Math.toDegrees(angle);
+        double maxLat = lat + Math.toDegrees(angle);
+        if (minLat <= -90.0 || maxLat >= 90.0) {
+            // the circle reaches a pole, so it spans every longitude
+            return easyboxRepository.findWithinBounds(Math.max(-90.0, minLat), Math.min(90.0, maxLat), -180.0, 180.0);
+        }
+
+        // widest longitude offset on the circle, reached away from the centre's latitude
+        double dLon = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(lat))));
+        double minLon = lon - dLon;
+        double maxLon = lon + dLon;
+        // split at the antimeridian; the two ranges never overlap since dLon is at most 90
+        if (minLon < -180.0) {
+            return Flux.concat(easyboxRepository.findWithinBounds(minLat, maxLat, minLon + 360.0, 180.0),
+                    easyboxRepository.findWithinBounds(minLat, maxLat, -180.0, maxLon));
+        }
+        if (maxLon > 180.0) {
+            return Flux.concat(easyboxRepository.findWithinBounds(minLat, maxLat, minLon, 180.0),
+                    easyboxRepository.findWithinBounds(minLat, maxLat, -180.0, maxLon - 360.0));
+        }
+        return easyboxRepository.findWithinBounds(minLat, maxLat, minLon, maxLon);
+    }
+
+    private record Candidate(Easybox box, double distance) {}
+}
@@ -0,0 +1,151 @@
+package com.example.network.service;
+
+import com.example.network.dto.FreeSlotDto;
+import com.example.network.exception.InvalidRequestException;
+import com.example.network.exception.NotFoundException;
+import com.example.network.model.Compartment;
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bookable windows of a box per temperature/size class, computed in a single sweep over the box's
+ * reservations ordered by start. Every slot can be taken as a whole by one compartment of its
+ * class: each compartment's gaps are found on their own and a class lists the gaps not contained
+ * in another of its gaps. Windows are closed like compartment_no_overlap, so a slot ends the second
+ * before the next reservation starts and begins the second after the previous one ends.
+ */
+@Service
+public class FreeSlotCalendarService {
+
+    private static final Duration MAX_RANGE = Duration.ofDays(62);
+    // reservation windows are compared at second precision, like the interval index
+    private static final Duration STEP = Duration.ofSeconds(1);
+
+    private final EasyboxCache easyboxCache;
+    private final CompartmentCatalog compartmentCatalog;
+    private final ReservationRepository reservationRepository;
+
+    public FreeSlotCalendarService(EasyboxCache easyboxCache,
+                                   CompartmentCatalog compartmentCatalog,
+                                   ReservationRepository reservationRepository) {
+        this.easyboxCache = easyboxCache;
+        this.compartmentCatalog = compartmentCatalog;
+        this.reservationRepository = reservationRepository;
+    }
+
+    public Flux<FreeSlotDto> freeSlots(Long easyboxId, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !to.isAfter(from)) {
+            return Flux.error(new InvalidRequestException("'to' must be after 'from'"));
+        }
+        if (Duration.between(from, to).compareTo(MAX_RANGE) > 0) {
+            return Flux.error(new InvalidRequestException("Range is limited to " + MAX_RANGE.toDays() + " days"));
+        }
+
+        return easyboxCache.findById(easyboxId)
+                .switchIfEmpty(Mono.error(new NotFoundException("Easybox not found")))
+                .flatMap(box -> compartmentCatalog.usable(List.of(easyboxId), null, null).collectList())
+                .flatMapMany(compartments -> {
+                    Sweep sweep = new Sweep(compartments, from, to);
+                    return reservationRepository.findActiveByEasyboxIdBetween(easyboxId, from, to)
+                            .doOnNext(sweep::advance)
+                            .thenMany(Flux.defer(() -> Flux.fromIterable(sweep.finish())));
+                });
+    }
+
+    private static final class SlotClass {
+        final int temperature;
+        final int size;
+        final List<FreeSlotDto> gaps = new ArrayList<>();
+
+        SlotClass(int temperature, int size) {
+            this.temperature = temperature;
+            this.size = size;
+        }
+    }
+
+    private static final class CompartmentState {
+        final SlotClass slotClass;
+        LocalDateTime freeFrom; // first instant not covered by a reservation seen so far
+
+        CompartmentState(SlotClass slotClass, LocalDateTime freeFrom) {
+            this.slotClass = slotClass;
+            this.freeFrom = freeFrom;
+        }
+
+        void gapUntil(LocalDateTime lastFree) {
+            if (!lastFree.isBefore(freeFrom)) {
+                slotClass.gaps.add(new FreeSlotDto(slotClass.temperature, slotClass.size, freeFrom, lastFree));
+            }
+        }
+    }
+
+    private static final class Sweep {
+
+        private final LocalDateTime to;
+        private final Map<Long, CompartmentState> compartments = new HashMap<>();
+        private final List<SlotClass> classes = new ArrayList<>();
+
+        Sweep(List<Compartment> usable, LocalDateTime from, LocalDateTime to) {
+            this.to = to;
+            Map<Long, SlotClass> byKey = new HashMap<>();
+            for (Compartment c : usable) {
+                long key = ((long) c.getTemperature() << 32) | (c.getSize() & 0xffffffffL);
+                SlotClass slotClass = byKey.computeIfAbsent(key, k -> {
+                    SlotClass created = new SlotClass(c.getTemperature(), c.getSize());
+                    classes.add(created);
+                    return created;
+                });
+                compartments.put(c.getId(), new CompartmentState(slotClass, from));
+            }
+            classes.sort(Comparator.<SlotClass>comparingInt(sc -> sc.temperature).thenComparingInt(sc -> sc.size));
+        }
+
+        void advance(Reservation r) {
+            CompartmentState state = compartments.get(r.getCompartmentId());
+            if (state == null) {
+                return; // compartment not bookable
+            }
+            // [start, end] is taken, bounds included
+            state.gapUntil(r.getReservationStart().minus(STEP));
+            LocalDateTime nextFree = r.getReservationEnd().plus(STEP);
+            if (nextFree.isAfter(state.freeFrom)) {
+                state.freeFrom = nextFree;
+            }
+        }
+
+        List<FreeSlotDto> finish() {
+            compartments.values().forEach(state -> state.gapUntil(to));
+            List<FreeSlotDto> slots = new ArrayList<>();
+            for (SlotClass slotClass : classes) {
+                slots.addAll(maximal(slotClass.gaps));
+            }
+            return slots;
+        }
+
+        // drops gaps lying inside another gap of the same class, duplicates included
+        private static List<FreeSlotDto> maximal(List<FreeSlotDto> gaps) {
+            gaps.sort(Comparator.comparing(FreeSlotDto::getStart)
+                    .thenComparing(FreeSlotDto::getEnd, Comparator.reverseOrder()));
+            List<FreeSlotDto> kept = new ArrayList<>();
+            LocalDateTime furthestEnd = null;
+            for (FreeSlotDto gap : gaps) {
+                if (furthestEnd == null || gap.getEnd().isAfter(furthestEnd)) {
+                    kept.add(gap);
+                    furthestEnd = gap.getEnd();
+                }
+            }
+            return kept;
+        }
+    }
+}
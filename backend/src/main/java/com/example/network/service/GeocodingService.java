@@ -2,7 +2,14 @@
 package com.example.network.service;
 
 import com.example.network.exception.GeocodingException;
+import com.example.network.repository.GeocodeCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -11,28 +18,125 @@ import reactor.util.retry.Retry;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class GeocodingService {
 
+    private static final Logger log = LoggerFactory.getLogger(GeocodingService.class);
+
+    static final double EARTH_RADIUS_METERS = 6_371_000;
+
     private final WebClient webClient;
     private final String LOCATIONIQ_URL;
+    private final GeocodeCacheRepository cacheRepository;
+    private final Duration cacheTtl;
+    private final ClusterJobRunner clusterJobs;
+
+    // L1: access-ordered LRU, guarded by its own monitor
+    private final LinkedHashMap<String, CachedCoords> memoryCache;
+    // concurrent lookups of the same address share one outbound request
+    private final Map<String, Mono<double[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Timer remoteLatency;
+    private final Counter noResult;
+    private final Counter invalidResponse;
+    private final Counter remoteFailures;
 
     public GeocodingService(
             WebClient.Builder webClientBuilder,
-            @Value("${locationiq.api.key}") String apiKey
+            @Value("${locationiq.api.key}") String apiKey,
+            GeocodeCacheRepository cacheRepository,
+            MeterRegistry meterRegistry,
+            ClusterJobRunner clusterJobs,
+            @Value("${geocoding.cache.ttl:30d}") Duration cacheTtl,
+            @Value("${geocoding.cache.max-entries:10000}") int maxEntries
     ) {
         this.webClient = webClientBuilder.build();
         this.LOCATIONIQ_URL = "https://us1.locationiq.com/v1/search?format=json&limit=1&key=" + apiKey + "&q=";
+        this.cacheRepository = cacheRepository;
+        this.cacheTtl = cacheTtl;
+        this.clusterJobs = clusterJobs;
+        this.memoryCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCoords> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.memoryHits   = meterRegistry.counter("geocoding.cache.requests", "result", "memory_hit");
+        this.databaseHits = meterRegistry.counter("geocoding.cache.requests", "result", "db_hit");
+        this.misses       = meterRegistry.counter("geocoding.cache.requests", "result", "miss");
+        this.coalesced    = meterRegistry.counter("geocoding.cache.coalesced");
+        this.remoteLatency = meterRegistry.timer("geocoding.remote.latency");
+        this.noResult        = meterRegistry.counter("geocoding.remote.errors", "reason", "no_result");
+        this.invalidResponse = meterRegistry.counter("geocoding.remote.errors", "reason", "invalid_response");
+        this.remoteFailures  = meterRegistry.counter("geocoding.remote.errors", "reason", "request_failed");
+        meterRegistry.gauge("geocoding.cache.size", memoryCache, cache -> {
+            synchronized (cache) {
+                return cache.size();
+            }
+        });
     }
     public Mono<double[]> geocodeAddress(String address) {
         if (address == null || address.isBlank()) {
             return Mono.error(new GeocodingException("Address is blank or null."));
         }
-        System.out.println("error2");
+        String key = normalize(address);
+
+        double[] cached = fromMemory(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return Mono.just(cached);
+        }
+
+        Mono<double[]> pending = inFlight.get(key);
+        if (pending != null) {
+            coalesced.increment();
+            return pending;
+        }
+        return inFlight.computeIfAbsent(key, k -> fromDatabaseOrRemote(k, address)
+                .doFinally(signal -> inFlight.remove(k))
+                .cache());
+    }
+
+    private Mono<double[]> fromDatabaseOrRemote(String key, String address) {
+        return cacheRepository.findFresh(key, LocalDateTime.now().minus(cacheTtl))
+                .map(entry -> {
+                    databaseHits.increment();
+                    return new double[]{entry.getLatitude(), entry.getLongitude()};
+                })
+                .onErrorResume(e -> {
+                    log.warn("Geocode cache read failed for '{}': {}", address, e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    misses.increment();
+                    Timer.Sample sample = Timer.start();
+                    return fetchRemote(address)
+                            .doOnSuccess(coords -> sample.stop(remoteLatency))
+                            .flatMap(coords -> cacheRepository.upsert(key, coords[0], coords[1], LocalDateTime.now())
+                                    .onErrorResume(e -> {
+                                        log.warn("Geocode cache write failed for '{}': {}", address, e.getMessage());
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(coords));
+                }))
+                .doOnNext(coords -> toMemory(key, coords));
+    }
+
+    private Mono<double[]> fetchRemote(String address) {
+        log.debug("Geocoding '{}' remotely", address);
         String encoded = URLEncoder.encode(address, StandardCharsets.UTF_8);
         String url = LOCATIONIQ_URL + encoded;
-        System.out.println(address);
         return webClient.get()
                 .uri(url)
                 .header("User-Agent", "MyApp/1.0 (contact: your-email@example.com)")
@@ -42,35 +146,78 @@ public class GeocodingService {
                 .flatMap(responses -> {
                     // Instead of returning [0,0], throw an error
                     if (responses == null || responses.length == 0) {
+                        noResult.increment();
+                        log.warn("Geocoding found no coordinates for '{}'", address);
                         return Mono.error(new GeocodingException("No coordinates found for: " + address));
                     }
                     try {
                         double lat = Double.parseDouble(responses[0].lat);
                         double lon = Double.parseDouble(responses[0].lon);
-                        System.out.println("error3");
                         return Mono.just(new double[]{lat, lon});
-                    } catch (NumberFormatException e) {
-                        System.out.println("error4");
+                    } catch (NumberFormatException | NullPointerException e) {
+                        invalidResponse.increment();
+                        log.warn("Geocoding returned invalid lat/lon ({}, {}) for '{}'",
+                                responses[0].lat, responses[0].lon, address, e);
                         return Mono.error(new GeocodingException(
                                 "Invalid lat/lon from Nominatim for: " + address
                         ));
                     }
                 })
-                .onErrorResume(ex -> Mono.error(new GeocodingException(
-                        "Error calling geocoding service for address: " + address + ". " + ex.getMessage()
-                )));
+                // the two cases above are already counted and carry their own message
+                .onErrorResume(ex -> !(ex instanceof GeocodingException), ex -> {
+                    remoteFailures.increment();
+                    log.warn("Geocoding request failed for '{}'", address, ex);
+                    return Mono.error(new GeocodingException(
+                            "Error calling geocoding service for address: " + address + ". " + ex.getMessage()
+                    ));
+                });
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // daily, off-peak
+    public void purgeExpired() {
+        clusterJobs.singleton("geocode-cache-purge", Duration.ofMinutes(10),
+                        () -> cacheRepository.deleteStale(LocalDateTime.now().minus(cacheTtl)))
+                .subscribe(
+                        count -> log.info("Purged {} stale geocode cache rows", count),
+                        error -> log.warn("Geocode cache purge failed: {}", error.getMessage())
+                );
+    }
+
+    private double[] fromMemory(String key) {
+        synchronized (memoryCache) {
+            CachedCoords entry = memoryCache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis() < System.currentTimeMillis()) {
+                memoryCache.remove(key);
+                return null;
+            }
+            return entry.coords();
+        }
+    }
+
+    private void toMemory(String key, double[] coords) {
+        synchronized (memoryCache) {
+            memoryCache.put(key, new CachedCoords(coords, System.currentTimeMillis() + cacheTtl.toMillis()));
+        }
+    }
+
+    static String normalize(String address) {
+        return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
     public double distance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS = 6371000; // meters
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
         double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
                 * Math.sin(dLon / 2) * Math.sin(dLon / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return EARTH_RADIUS * c;
+        return EARTH_RADIUS_METERS * c;
     }
+    private record CachedCoords(double[] coords, long expiresAtMillis) {}
+
     private static class NominatimResponse {
         public String lat;
         public String lon;
@@ -5,12 +5,8 @@ import com.example.network.exception.InvalidRequestException;
 import com.google.zxing.*;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.common.HybridBinarizer;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Base64;
@@ -29,55 +25,76 @@ public class QrCodeService {
 
     private final ReservationRepository reservationRepository;
     private final CompartmentRepository compartmentRepository;
+    private final EasyboxCache easyboxCache;
+    private final QrTokenService qrTokenService;
 
     public QrCodeService(ReservationRepository reservationRepository,
-                         CompartmentRepository compartmentRepository) {
+                         CompartmentRepository compartmentRepository,
+                         EasyboxCache easyboxCache,
+                         QrTokenService qrTokenService) {
         this.reservationRepository = reservationRepository;
         this.compartmentRepository = compartmentRepository;
+        this.easyboxCache = easyboxCache;
+        this.qrTokenService = qrTokenService;
     }
     private boolean isExpired(Reservation reservation) {
         return reservation.getExpiresAt() != null &&
                 reservation.getExpiresAt().isBefore(LocalDateTime.now(ZoneOffset.UTC));
     }
 
-    public Mono<QrCodeResult> handleQrScan(String qrContent) {
+    /**
+     * Resolves a scanned code for the box identified by {@code clientId}. Signed tokens are
+     * checked for signature, validity window and box before any reservation is read; legacy
+     * {@code reservation:} codes are still resolved through the stored payload.
+     */
+    public Mono<QrCodeResult> handleQrScan(String qrContent, String clientId) {
+        if (QrTokenService.isToken(qrContent)) {
+            QrTokenService.QrToken token;
+            try {
+                token = qrTokenService.verify(qrContent);
+            } catch (InvalidRequestException e) {
+                return Mono.error(e);
+            }
+            return easyboxCache.findByClientId(clientId)
+                    .filter(box -> box.getId() != null && box.getId() == token.easyboxId())
+                    .switchIfEmpty(Mono.error(new InvalidRequestException("QR code belongs to another Easybox")))
+                    .flatMap(box -> reservationRepository.findById(token.reservationId()))
+                    .switchIfEmpty(Mono.error(new InvalidRequestException("No reservation matches this QR code")))
+                    .flatMap(reservation -> {
+                        if (!reservation.getCompartmentId().equals(token.compartmentId())) {
+                            return Mono.error(new InvalidRequestException("QR code no longer matches this reservation"));
+                        }
+                        if (!token.role().allows(reservation.getStatus())) {
+                            return Mono.error(new InvalidRequestException("QR code not valid for this step"));
+                        }
+                        return toScanResult(reservation);
+                    });
+        }
         if (!qrContent.startsWith("reservation:")) {
             return Mono.error(new InvalidRequestException("Invalid QR format"));
         }
 
-        return reservationRepository.findAll()
-                .flatMap(res -> {
-                    try {
-                        String decoded = decodeQrFromBase64Png(res.getQrCodeData());
-                        if (qrContent.equals(decoded)) {
-                            return Mono.just(res);
-                        } else {
-                            return Mono.empty();
-                        }
-                    } catch (Exception e) {
-                        System.err.println("QR decode failed for reservation " + res.getId() + ": " + e.getMessage());
-                        return Mono.empty();
-                    }
-                })
-                .singleOrEmpty()
+        return reservationRepository.findByQrContent(qrContent)
                 .switchIfEmpty(Mono.error(new InvalidRequestException("No reservation matches this QR code")))
-                .flatMap(reservation -> {
-                    if (isExpired(reservation) ||
-                            "cancelled".equals(reservation.getStatus()) ||
-                            "expired".equals(reservation.getStatus())) {
-                        return Mono.error(new InvalidRequestException("Reservation expired or cancelled"));
-                    }
+                .flatMap(this::toScanResult);
+    }
 
-                    String status = reservation.getStatus();
-                    if ("waiting_bakery_drop_off".equals(status) || "waiting_client_pick_up".equals(status)) {
-                        return Mono.just(new QrCodeResult(
-                                reservation.getCompartmentId(),
-                                status
-                        ));
-                    }
+    private Mono<QrCodeResult> toScanResult(Reservation reservation) {
+        if (isExpired(reservation) ||
+                "cancelled".equals(reservation.getStatus()) ||
+                "expired".equals(reservation.getStatus())) {
+            return Mono.error(new InvalidRequestException("Reservation expired or cancelled"));
+        }
 
-                    return Mono.error(new InvalidRequestException("Reservation in unexpected state: " + status));
-                });
+        String status = reservation.getStatus();
+        if ("waiting_bakery_drop_off".equals(status) || "waiting_client_pick_up".equals(status)) {
+            return Mono.just(new QrCodeResult(
+                    reservation.getCompartmentId(),
+                    status
+            ));
+        }
+
+        return Mono.error(new InvalidRequestException("Reservation in unexpected state: " + status));
     }
 
 
@@ -110,18 +127,6 @@ public class QrCodeService {
                             ));
                 });
     }
-    public static String generateQrCodeBase64(String text) throws Exception {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, 250, 250);
-
-        BufferedImage bufferedImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        javax.imageio.ImageIO.write(bufferedImage, "PNG", baos);
-        byte[] bytes = baos.toByteArray();
-
-        return Base64.getEncoder().encodeToString(bytes);
-    }
     public static String decodeQrFromBase64Png(String base64Png) throws Exception {
         byte[] imageBytes = Base64.getDecoder().decode(base64Png);
         BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
@@ -0,0 +1,116 @@
+package com.example.network.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders QR payloads to PNG or SVG on demand. Encoding runs on a small dedicated scheduler so
+ * it never blocks the event loop, and recent images are kept in a size-bounded LRU cache.
+ */
+@Component
+public class QrImageRenderer {
+
+    private static final int PNG_SIZE = 250;
+
+    private final Scheduler scheduler;
+    private final LinkedHashMap<String, byte[]> cache;
+
+    public QrImageRenderer(@Value("${qr.render.threads:2}") int threads,
+                           @Value("${qr.render.queue-size:256}") int queueSize,
+                           @Value("${qr.render.cache.max-entries:1000}") int maxEntries) {
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueSize, "qr-render");
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Mono<byte[]> png(String content) {
+        return render("png:" + content, () -> encodePng(content));
+    }
+
+    public Mono<byte[]> svg(String content) {
+        return render("svg:" + content, () -> encodeSvg(content));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    private Mono<byte[]> render(String key, Encoder encoder) {
+        byte[] cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(encoder::encode)
+                .subscribeOn(scheduler)
+                .doOnNext(bytes -> {
+                    synchronized (cache) {
+                        cache.put(key, bytes);
+                    }
+                });
+    }
+
+    private static byte[] encodePng(String content) throws WriterException, IOException {
+        BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, PNG_SIZE, PNG_SIZE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+        return out.toByteArray();
+    }
+
+    // one module per unit, dark modules merged into horizontal runs to keep the path short
+    private static byte[] encodeSvg(String content) throws WriterException {
+        BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, 0, 0,
+                Map.of(EncodeHintType.MARGIN, 4));
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+
+        StringBuilder path = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < width && matrix.get(x, y)) x++;
+                path.append('M').append(runStart).append(' ').append(y)
+                        .append('h').append(x - runStart).append("v1h-").append(x - runStart).append('z');
+            }
+        }
+
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 " + width + " " + height
+                + "\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>"
+                + "<path fill=\"#000\" d=\"" + path + "\"/></svg>";
+        return svg.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        byte[] encode() throws Exception;
+    }
+}
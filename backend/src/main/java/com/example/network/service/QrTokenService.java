@@ -0,0 +1,163 @@
+package com.example.network.service;
+
+import com.example.network.exception.ConfigurationException;
+import com.example.network.exception.InvalidRequestException;
+import com.example.network.model.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Self-verifying QR payloads: {@code v1.<payload>.<mac>}, both parts base64url without padding.
+ * The payload is reservation id, compartment id, easybox id (8 bytes each), the validity window
+ * as unsigned epoch seconds (4 bytes each) and a role byte; the MAC is HMAC-SHA256 over
+ * {@code "v1." + payload}, truncated to 16 bytes. Forged, expired and malformed codes are
+ * rejected here without touching the database.
+ */
+@Service
+public class QrTokenService {
+
+    public static final String VERSION_PREFIX = "v1.";
+
+    private static final int PAYLOAD_LENGTH = 8 + 8 + 8 + 4 + 4 + 1;
+    private static final int MAC_LENGTH = 16;
+    private static final long CLOCK_SKEW_SECONDS = 300;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public enum Role {
+        ANY((byte) 0), DROP_OFF((byte) 1), PICK_UP((byte) 2);
+
+        private final byte code;
+
+        Role(byte code) {
+            this.code = code;
+        }
+
+        static Role fromCode(byte code) {
+            for (Role role : values()) {
+                if (role.code == code) return role;
+            }
+            throw new InvalidRequestException("Unknown QR role");
+        }
+
+        public boolean allows(String reservationStatus) {
+            return switch (this) {
+                case ANY -> true;
+                case DROP_OFF -> "waiting_bakery_drop_off".equals(reservationStatus);
+                case PICK_UP -> "waiting_client_pick_up".equals(reservationStatus);
+            };
+        }
+    }
+
+    public record QrToken(long reservationId, long compartmentId, long easyboxId,
+                          long notBefore, long notAfter, Role role) {}
+
+    private final ThreadLocal<Mac> macs;
+
+    public QrTokenService(@Value("${qr.token.secret}") String secret) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new ConfigurationException("qr.token.secret must be at least 32 bytes");
+        }
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new ConfigurationException("HmacSHA256 unavailable");
+            }
+        });
+    }
+
+    /** Token valid over the reservation window; deterministic, so re-issuing yields the same string. */
+    public String issue(Reservation reservation, Role role) {
+        return issue(new QrToken(
+                reservation.getId(),
+                reservation.getCompartmentId(),
+                reservation.getEasyboxId(),
+                toEpoch(reservation.getReservationStart()),
+                toEpoch(reservation.getReservationEnd()),
+                role
+        ));
+    }
+
+    public String issue(QrToken token) {
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_LENGTH)
+                .putLong(token.reservationId())
+                .putLong(token.compartmentId())
+                .putLong(token.easyboxId())
+                .putInt((int) token.notBefore())
+                .putInt((int) token.notAfter())
+                .put(token.role().code)
+                .array();
+        String signed = VERSION_PREFIX + ENCODER.encodeToString(payload);
+        return signed + "." + ENCODER.encodeToString(mac(signed));
+    }
+
+    public static boolean isToken(String qrContent) {
+        return qrContent != null && qrContent.startsWith(VERSION_PREFIX);
+    }
+
+    /** Parses and checks signature and validity window; throws {@link InvalidRequestException} otherwise. */
+    public QrToken verify(String qrContent) {
+        if (!isToken(qrContent)) {
+            throw new InvalidRequestException("Unsupported QR version");
+        }
+        int dot = qrContent.indexOf('.', VERSION_PREFIX.length());
+        if (dot < 0) {
+            throw new InvalidRequestException("Invalid QR format");
+        }
+        byte[] payload;
+        byte[] presented;
+        try {
+            payload = DECODER.decode(qrContent.substring(VERSION_PREFIX.length(), dot));
+            presented = DECODER.decode(qrContent.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid QR format");
+        }
+        if (payload.length != PAYLOAD_LENGTH || presented.length != MAC_LENGTH) {
+            throw new InvalidRequestException("Invalid QR format");
+        }
+        if (!MessageDigest.isEqual(mac(qrContent.substring(0, dot)), presented)) {
+            throw new InvalidRequestException("QR signature mismatch");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        QrToken token = new QrToken(
+                buffer.getLong(),
+                buffer.getLong(),
+                buffer.getLong(),
+                Integer.toUnsignedLong(buffer.getInt()),
+                Integer.toUnsignedLong(buffer.getInt()),
+                Role.fromCode(buffer.get())
+        );
+        long now = toEpoch(LocalDateTime.now());
+        if (now + CLOCK_SKEW_SECONDS < token.notBefore() || now - CLOCK_SKEW_SECONDS > token.notAfter()) {
+            throw new InvalidRequestException("Reservation expired or not yet valid");
+        }
+        return token;
+    }
+
+    private byte[] mac(String signed) {
+        byte[] full = macs.get().doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        byte[] truncated = new byte[MAC_LENGTH];
+        System.arraycopy(full, 0, truncated, 0, MAC_LENGTH);
+        return truncated;
+    }
+
+    // same wall-clock convention as the reservation columns
+    private static long toEpoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.network.service;
+
+import com.example.network.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps this replica's reservation views in step with writes made on other replicas: the row
+ * is reloaded once and handed to the interval index and the transition scheduler.
+ */
+@Component
+public class ReservationChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationChangeListener.class);
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationIntervalIndex intervalIndex;
+    private final ReservationTransitionScheduler transitionScheduler;
+
+    public ReservationChangeListener(ChangeEventBus changeEventBus,
+                                     ReservationRepository reservationRepository,
+                                     ReservationIntervalIndex intervalIndex,
+                                     ReservationTransitionScheduler transitionScheduler) {
+        this.reservationRepository = reservationRepository;
+        this.intervalIndex = intervalIndex;
+        this.transitionScheduler = transitionScheduler;
+        changeEventBus.subscribe(ChangeEventBus.RESERVATION, this::onChange);
+    }
+
+    private void onChange(ChangeEventBus.ChangeEvent event) {
+        if (event.deleted()) {
+            intervalIndex.remove(event.id());
+            return;
+        }
+        reservationRepository.findById(event.id())
+                .doOnNext(reservation -> {
+                    intervalIndex.track(reservation);
+                    transitionScheduler.schedule(reservation);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> intervalIndex.remove(event.id())))
+                .subscribe(
+                        reservation -> { },
+                        error -> log.warn("Failed to reload reservation {} (version {}) after change event", event.id(),
+                                event.version(), error)
+                );
+    }
+}
@@ -1,99 +1,100 @@
 package com.example.network.service;
 
 import com.example.network.model.Reservation;
-import com.example.network.repository.CompartmentRepository;
-import com.example.network.repository.EasyboxRepository;
 import com.example.network.repository.ReservationRepository;
-import org.springframework.dao.OptimisticLockingFailureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 import java.time.LocalDateTime;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Time-driven reservation transitions, each applied as one indexed bulk UPDATE over the rows
+ * that are due, so a run only touches reservations whose state actually changes.
+ */
 @Service
 public class ReservationCleanupService {
 
     private final ReservationRepository reservationRepository;
-    private final EasyboxRepository easyboxRepository;
-    private final CompartmentRepository compartmentRepository;
+    private final ReservationIntervalIndex intervalIndex;
+    private final ClusterJobRunner clusterJobs;
+    private final ChangeEventBus changeEventBus;
+    private final MeterRegistry meterRegistry;
+    private final Timer runDuration;
 
     public ReservationCleanupService(ReservationRepository reservationRepository,
-                                     EasyboxRepository     easyboxRepository,
-                                     CompartmentRepository compartmentRepository) {
+                                     ReservationIntervalIndex intervalIndex,
+                                     ClusterJobRunner clusterJobs,
+                                     ChangeEventBus changeEventBus,
+                                     MeterRegistry meterRegistry) {
         this.reservationRepository = reservationRepository;
-        this.easyboxRepository     = easyboxRepository;
-        this.compartmentRepository = compartmentRepository;
+        this.intervalIndex         = intervalIndex;
+        this.clusterJobs           = clusterJobs;
+        this.changeEventBus        = changeEventBus;
+        this.meterRegistry         = meterRegistry;
+        this.runDuration           = meterRegistry.timer("reservation.lifecycle.duration");
     }
 
-    @Scheduled(fixedRate = 600_000) // every 10 minutes
+    // reconciliation for anything the transition scheduler missed (restarts, rolled-back plans)
+    @Scheduled(fixedRateString = "${reservation.lifecycle.reconcile-interval-ms:3600000}", initialDelay = 60_000)
     public void cleanupAndUpdateReservations() {
         LocalDateTime now = LocalDateTime.now();
-
-        reservationRepository.findAll()
-                .flatMap(reservation -> {
-                    LocalDateTime start = reservation.getReservationStart();
-                    boolean startingSoon = start != null && !start.isAfter(now.plusHours(1)); // starts in <= 1h
-
-                    Mono<Reservation> updated = Mono.just(reservation);
-
-                    if (startingSoon) {
-                        updated = easyboxRepository.findById(reservation.getEasyboxId())
-                                .flatMap(easybox -> {
-                                    if (!"active".equals(easybox.getStatus())) {
-                                        reservation.setStatus("cancelled");
-                                        return Mono.just(reservation);
-                                    }
-                                    return compartmentRepository.findById(reservation.getCompartmentId())
-                                            .flatMap(compartment -> {
-                                                String cond = compartment.getStatus();
-                                                if ("dirty".equalsIgnoreCase(cond) || "broken".equalsIgnoreCase(cond)) {
-                                                    reservation.setStatus("waiting_cleaning");
-                                                    return Mono.just(reservation);
-                                                }
-                                                return Mono.just(reservation);
-                                            });
-                                });
-                    }
-
-                    return updated.flatMap(r -> {
-                        if ("waiting_bakery_drop_off".equalsIgnoreCase(r.getStatus()) &&
-                                r.getReservationStart() != null &&
-                                r.getReservationStart().plusHours(3).isBefore(now)) {
-                            System.out.println("Expiring reservation " + r.getId());
-                            r.setStatus("expired");
-                            return compartmentRepository.findById(r.getCompartmentId())
-                                    .flatMap(compartment -> {
-                                        compartment.setStatus("free");
-                                        return compartmentRepository.save(compartment);
-                                    })
-                                    .thenReturn(r);
-                        }
-
-                        if ("confirmed".equalsIgnoreCase(r.getStatus()) &&
-                                r.getReservationStart() != null &&
-                                r.getReservationStart().isBefore(now)) {
-                            r.setStatus("waiting_bakery_drop_off");
-                            return Mono.just(r);
-                        }
-
-                        if ("waiting_client_pick_up".equalsIgnoreCase(r.getStatus()) &&
-                                r.getReservationEnd().minusHours(3).isBefore(now)) {
-                            r.setStatus("waiting_cleaning");
-                            return Mono.just(r);
-                        }
-
-                        return Mono.empty();
-                    });
-
-                })
-                .flatMap(reservationRepository::save)
+        clusterJobs.partitioned("reservation-lifecycle", partition -> runTransitions(now, partition))
                 .subscribe(
-                        res -> System.out.println("Updated reservation " + res.getId() + " → " + res.getStatus()),
+                        count -> System.out.println("Reservation lifecycle run updated " + count + " reservations"),
                         error -> System.err.println("Error during reservation update: " + error.getMessage())
                 );
     }
 
+    /** Applies every transition due at {@code now}, in lifecycle order, and emits the number of rows changed. */
+    public Mono<Long> runTransitions(LocalDateTime now) {
+        return runTransitions(now, ClusterJobRunner.Partition.ALL);
+    }
+
+    public Mono<Long> runTransitions(LocalDateTime now, ClusterJobRunner.Partition partition) {
+        int n = partition.count();
+        int i = partition.index();
+        Timer.Sample sample = Timer.start();
+        return Flux.concat(
+                        // boxes taken out of service cancel what would start within the hour
+                        transition("cancelled_inactive_box", null, false, () -> reservationRepository.cancelOnInactiveBoxes(now.plusHours(1), n, i)),
+                        // no drop-off within 3h of the window opening: expire and release the compartment
+                        transition("expired_drop_off", "waiting_bakery_drop_off", true, () -> reservationRepository.expireMissedDropOffs(now.minusHours(3), n, i)),
+                        transition("waiting_bakery_drop_off", "confirmed", false, () -> reservationRepository.openStartedDropOffs(now, n, i)),
+                        transition("waiting_cleaning", "waiting_client_pick_up", false, () -> reservationRepository.closeEndedPickUps(now.plusHours(3), n, i))
+                )
+                .reduce(0L, Long::sum)
+                .doFinally(signal -> sample.stop(runDuration));
+    }
 
+    // fromStatus is the status every matched row had, or null when the statement matches several
+    private Mono<Long> transition(String name, String fromStatus, boolean freesCompartments,
+                                  Supplier<Flux<Reservation>> update) {
+        return Flux.defer(update)
+                .doOnNext(intervalIndex::track)
+                .collectList()
+                .flatMap(changed -> {
+                    List<ChangeEventBus.ChangeEvent> events = new ArrayList<>();
+                    for (Reservation r : changed) {
+                        ChangeEventBus.State after = ChangeEventPublisher.stateOf(r);
+                        ChangeEventBus.State before = fromStatus != null
+                                ? ChangeEventBus.State.of(fromStatus, after.value(1))
+                                : null;
+                        events.add(ChangeEventBus.ChangeEvent.saved(ChangeEventBus.RESERVATION, r.getId(), r.getVersion(),
+                                before, after));
+                        if (freesCompartments) {
+                            events.add(ChangeEventBus.ChangeEvent.saved(ChangeEventBus.COMPARTMENT, r.getCompartmentId(), null));
+                        }
+                    }
+                    return changeEventBus.publishAll(events).thenReturn((long) changed.size());
+                })
+                .doOnNext(count -> meterRegistry.counter("reservation.lifecycle.transitions", "transition", name)
+                        .increment(count));
+    }
 }
@@ -1,35 +1,86 @@
 package com.example.network.service;
 
-import com.example.network.repository.CompartmentRepository;
+import com.example.network.model.Reservation;
 import com.example.network.repository.ReservationRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class ReservationCleanupTask {
 
     private final ReservationRepository reservationRepository;
-    private final CompartmentRepository compartmentRepository;
+    private final ReservationIntervalIndex intervalIndex;
+    private final ClusterJobRunner clusterJobs;
+    private final ChangeEventBus changeEventBus;
+    private final int batchSize;
 
-    /** runs every 60 s */
-    @Scheduled(fixedDelay = 60_000)
-    public void releaseExpired() {
-        LocalDateTime now = LocalDateTime.now();
+    private final Counter purged;
+    private final Timer purgeLag;
+    private final Timer purgeDuration;
 
-        reservationRepository
-                .findAllByStatusAndExpiresAtBefore("pending", now)
-                .flatMap(reservation ->
-                                compartmentRepository.findById(reservation.getCompartmentId())
-                                        .then(reservationRepository.delete(reservation)),
-                        10 // concurrency level
-                )
+    public ReservationCleanupTask(ReservationRepository reservationRepository,
+                                  ReservationIntervalIndex intervalIndex,
+                                  ClusterJobRunner clusterJobs,
+                                  ChangeEventBus changeEventBus,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${reservation.hold-purge.batch-size:500}") int batchSize) {
+        this.reservationRepository = reservationRepository;
+        this.intervalIndex = intervalIndex;
+        this.clusterJobs = clusterJobs;
+        this.changeEventBus = changeEventBus;
+        this.batchSize = batchSize;
+        this.purged = meterRegistry.counter("reservation.holds.purged");
+        this.purgeLag = meterRegistry.timer("reservation.holds.purge.lag");
+        this.purgeDuration = meterRegistry.timer("reservation.holds.purge.duration");
+    }
 
-                .collectList() // Collect all results into a list
-                .doOnSuccess(deleted -> System.out.println("Cleanup completed. Deleted {} reservations." + deleted.size()))
+    /** safety net; holds are normally released on time by ReservationTransitionScheduler */
+    @Scheduled(fixedDelayString = "${reservation.hold-purge.interval-ms:600000}")
+    public void releaseExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        clusterJobs.partitioned("hold-purge", partition -> releaseExpired(now, partition))
+                .doOnSuccess(deleted -> System.out.println("Cleanup completed. Deleted " + deleted + " reservations."))
                 .doOnError(error -> System.out.println("Error during cleanup task: " + error))
                 .subscribe();
     }
+
+    /** Deletes every hold that lapsed before {@code now} in batches and emits how many were removed. */
+    public Mono<Long> releaseExpired(LocalDateTime now) {
+        return releaseExpired(now, ClusterJobRunner.Partition.ALL);
+    }
+
+    public Mono<Long> releaseExpired(LocalDateTime now, ClusterJobRunner.Partition partition) {
+        Timer.Sample sample = Timer.start();
+        return purgeBatch(now, partition)
+                .expand(batch -> batch.size() < batchSize ? Mono.empty() : purgeBatch(now, partition))
+                .doOnNext(batch -> {
+                    for (Reservation hold : batch) {
+                        intervalIndex.remove(hold.getId());
+                        // how long the hold outlived its expiry before it was purged
+                        purgeLag.record(Duration.between(hold.getExpiresAt(), now));
+                    }
+                    purged.increment(batch.size());
+                })
+                .concatMap(batch -> changeEventBus.publishAll(batch.stream()
+                                .map(hold -> ChangeEventBus.ChangeEvent.deleted(ChangeEventBus.RESERVATION, hold.getId(),
+                                        ChangeEventPublisher.stateOf(hold)))
+                                .toList())
+                        .thenReturn(batch))
+                .reduce(0L, (total, batch) -> total + batch.size())
+                .doFinally(signal -> sample.stop(purgeDuration));
+    }
+
+    private Mono<List<Reservation>> purgeBatch(LocalDateTime now, ClusterJobRunner.Partition partition) {
+        return reservationRepository.deleteExpiredHolds(now, batchSize, partition.count(), partition.index())
+                .collectList();
+    }
 }
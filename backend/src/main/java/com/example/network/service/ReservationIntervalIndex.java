@@ -0,0 +1,265 @@
+package com.example.network.service;
+
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the active reservation windows of every compartment, so availability
+ * checks on the widget hot path do not need a database round trip.
+ * Every repository save goes through {@link #onAfterSave}; deletes must call {@link #remove}.
+ * The compartment_no_overlap constraint stays the source of truth for the final insert.
+ */
+@Component
+public class ReservationIntervalIndex implements AfterSaveCallback<Reservation> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationIntervalIndex.class);
+
+    private final ReservationRepository reservationRepository;
+
+    private final Map<Long, Windows> windowsByCompartment = new ConcurrentHashMap<>();
+    private final Map<Long, Long> compartmentByReservation = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public ReservationIntervalIndex(ReservationRepository reservationRepository) {
+        this.reservationRepository = reservationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reservationRepository.findActiveEndingAfter(LocalDateTime.now().minusDays(1))
+                .doOnNext(this::track)
+                .count()
+                .subscribe(
+                        count -> {
+                            ready = true;
+                            log.info("Reservation interval index loaded with {} windows", count);
+                        },
+                        error -> log.error("Failed to load reservation interval index", error)
+                );
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Publisher<Reservation> onAfterSave(Reservation entity, OutboundRow outboundRow, SqlIdentifier table) {
+        return trackUntilRollback(entity);
+    }
+
+    /** Tracks a reservation written in the current transaction, if any, and reloads it should that transaction roll back. */
+    public Mono<Reservation> trackUntilRollback(Reservation entity) {
+        track(entity);
+        // tracked before the commit, so a rollback has to put back what the database still holds
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(tsm -> tsm.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return status == STATUS_COMMITTED || entity.getId() == null
+                                ? Mono.empty()
+                                : reload(entity.getId()).onErrorResume(e -> {
+                                    log.warn("Failed to reload reservation {} after rollback", entity.getId(), e);
+                                    return Mono.empty();
+                                });
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .thenReturn(entity);
+    }
+
+    // the reloaded row carries an older version than the rolled-back one, so drop that first
+    private Mono<Void> reload(Long reservationId) {
+        remove(reservationId);
+        return reservationRepository.findById(reservationId)
+                .doOnNext(this::track)
+                .then();
+    }
+
+    /** Inserts, moves or drops the window of a reservation according to its current state. */
+    public void track(Reservation r) {
+        if (r.getId() == null) {
+            return;
+        }
+        Long previousCompartment = compartmentByReservation.get(r.getId());
+        if (previousCompartment != null && !previousCompartment.equals(r.getCompartmentId())) {
+            windowsByCompartment.computeIfPresent(previousCompartment, (id, w) -> w.without(r.getId()));
+        }
+
+        if (!isActive(r) || r.getCompartmentId() == null) {
+            remove(r.getId());
+            return;
+        }
+
+        long version = r.getVersion() != null ? r.getVersion() : 0L;
+        long start = toKey(r.getReservationStart(), Long.MIN_VALUE);
+        long end   = toKey(r.getReservationEnd(), Long.MAX_VALUE);
+        windowsByCompartment.compute(r.getCompartmentId(), (id, w) ->
+                (w == null ? Windows.EMPTY : w).with(r.getId(), version, start, end));
+        compartmentByReservation.put(r.getId(), r.getCompartmentId());
+    }
+
+    public void remove(Long reservationId) {
+        Long compartmentId = compartmentByReservation.remove(reservationId);
+        if (compartmentId != null) {
+            windowsByCompartment.computeIfPresent(compartmentId, (id, w) -> w.without(reservationId));
+        }
+    }
+
+    /** True when no active reservation of the compartment overlaps [start, end], bounds included like compartment_no_overlap. */
+    public boolean isFree(Long compartmentId, LocalDateTime start, LocalDateTime end) {
+        Windows w = windowsByCompartment.get(compartmentId);
+        return w == null || !w.overlaps(toKey(start, Long.MIN_VALUE), toKey(end, Long.MAX_VALUE));
+    }
+
+    /**
+     * The overlap rule of compartment_no_overlap for a single pair of windows: closed ranges, so
+     * windows sharing a bound instant collide. For checks against rows read outside the index.
+     */
+    public static boolean overlaps(LocalDateTime start, LocalDateTime end, LocalDateTime otherStart, LocalDateTime otherEnd) {
+        return toKey(otherStart, Long.MIN_VALUE) <= toKey(end, Long.MAX_VALUE)
+                && toKey(otherEnd, Long.MAX_VALUE) >= toKey(start, Long.MIN_VALUE);
+    }
+
+    // windows that ended a day ago can no longer collide with a new booking
+    @Scheduled(fixedRate = 3_600_000)
+    public void pruneFinished() {
+        long cutoff = toKey(LocalDateTime.now().minusDays(1), Long.MIN_VALUE);
+        windowsByCompartment.replaceAll((id, w) -> {
+            Windows kept = w.endingAfter(cutoff);
+            if (kept != w) {
+                for (long reservationId : w.ids) {
+                    if (!kept.contains(reservationId)) {
+                        compartmentByReservation.remove(reservationId, id);
+                    }
+                }
+            }
+            return kept;
+        });
+        windowsByCompartment.values().removeIf(w -> w.ids.length == 0);
+    }
+
+    private static boolean isActive(Reservation r) {
+        String status = r.getStatus() != null ? r.getStatus().toLowerCase() : "";
+        return !status.equals("cancelled") && !status.equals("expired");
+    }
+
+    private static long toKey(LocalDateTime time, long ifNull) {
+        return time != null ? time.toEpochSecond(ZoneOffset.UTC) : ifNull;
+    }
+
+    /** Immutable windows of one compartment sorted by start, with a running max of the ends. */
+    private static final class Windows {
+
+        static final Windows EMPTY = new Windows(new long[0], new long[0], new long[0], new long[0]);
+
+        final long[] ids;
+        final long[] versions;
+        final long[] starts;
+        final long[] ends;
+        final long[] maxEnds;
+
+        private Windows(long[] ids, long[] versions, long[] starts, long[] ends) {
+            this.ids = ids;
+            this.versions = versions;
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnds = new long[ends.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        boolean overlaps(long start, long end) {
+            // windows starting at or before `end` are the only candidates; closed ranges touch at a shared bound
+            int lo = 0, hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= end) lo = mid + 1; else hi = mid;
+            }
+            return lo > 0 && maxEnds[lo - 1] >= start;
+        }
+
+        boolean contains(long reservationId) {
+            return indexOf(reservationId) >= 0;
+        }
+
+        Windows with(long reservationId, long version, long start, long end) {
+            int existing = indexOf(reservationId);
+            if (existing >= 0 && versions[existing] > version) {
+                return this; // a newer state was already applied
+            }
+            Windows base = existing >= 0 ? without(reservationId) : this;
+            int n = base.ids.length;
+            int at = 0;
+            while (at < n && base.starts[at] <= start) at++;
+
+            long[] newIds = insert(base.ids, at, reservationId);
+            long[] newVersions = insert(base.versions, at, version);
+            long[] newStarts = insert(base.starts, at, start);
+            long[] newEnds = insert(base.ends, at, end);
+            return new Windows(newIds, newVersions, newStarts, newEnds);
+        }
+
+        Windows without(long reservationId) {
+            int at = indexOf(reservationId);
+            if (at < 0) {
+                return this;
+            }
+            return new Windows(delete(ids, at), delete(versions, at), delete(starts, at), delete(ends, at));
+        }
+
+        Windows endingAfter(long cutoff) {
+            Windows kept = this;
+            for (int i = 0; i < ids.length; i++) {
+                if (ends[i] < cutoff) {
+                    kept = kept.without(ids[i]);
+                }
+            }
+            return kept;
+        }
+
+        private int indexOf(long reservationId) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == reservationId) return i;
+            }
+            return -1;
+        }
+
+        private static long[] insert(long[] source, int at, long value) {
+            long[] out = Arrays.copyOf(source, source.length + 1);
+            System.arraycopy(source, at, out, at + 1, source.length - at);
+            out[at] = value;
+            return out;
+        }
+
+        private static long[] delete(long[] source, int at) {
+            long[] out = new long[source.length - 1];
+            System.arraycopy(source, 0, out, 0, at);
+            System.arraycopy(source, at + 1, out, at, source.length - at - 1);
+            return out;
+        }
+    }
+}
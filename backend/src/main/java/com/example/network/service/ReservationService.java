@@ -2,12 +2,13 @@ package com.example.network.service;
 
 import com.example.network.dto.*;
 import com.example.network.model.*;
-import com.example.network.exception.ConfigurationException;
 import com.example.network.exception.ConflictException;
+import com.example.network.exception.GeocodingException;
+import com.example.network.exception.InvalidRequestException;
 import com.example.network.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
@@ -15,62 +16,82 @@ import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Base64;
+import java.time.format.DateTimeParseException;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Service
 public class ReservationService {
 
     private final ReservationRepository reservationRepository;
     private final EasyboxRepository      easyboxRepository;
+    private final EasyboxCache           easyboxCache;
     private final CompartmentRepository  compartmentRepository;
+    private final CompartmentCatalog     compartmentCatalog;
     private final GeocodingService       geocodingService;
     private final UserService userService;
+    private final ReservationIntervalIndex intervalIndex;
+    private final EasyboxLocator easyboxLocator;
+    private final CompartmentAllocator compartmentAllocator;
+    private final QrTokenService qrTokenService;
+    private final double searchRadiusMeters;
+    private final double maxRadiusMeters;
+    private final int defaultMaxResults;
+    private final int checkConcurrency;
+    private static final int MAX_RESULTS = 100;
+    private static final int CHECK_BATCH_SIZE = 8;
+    private static final int MAX_BATCH_QUERIES = 20;
+    // a search scope lives for one request; this only bounds how long a memoized lookup is held
+    private static final Duration SCOPE_TTL = Duration.ofMinutes(1);
     private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
     public ReservationService(
             ReservationRepository reservationRepository,
             EasyboxRepository easyboxRepository,
+            EasyboxCache easyboxCache,
             CompartmentRepository compartmentRepository,
+            CompartmentCatalog compartmentCatalog,
             GeocodingService geocodingService,
-            UserService userService
+            UserService userService,
+            ReservationIntervalIndex intervalIndex,
+            EasyboxLocator easyboxLocator,
+            CompartmentAllocator compartmentAllocator,
+            QrTokenService qrTokenService,
+            @Value("${easybox.search.radius-meters:50000}") double searchRadiusMeters,
+            @Value("${easybox.search.max-radius-meters:100000}") double maxRadiusMeters,
+            @Value("${easybox.search.max-results:20}") int defaultMaxResults,
+            @Value("${easybox.search.concurrency:4}") int checkConcurrency
     ) {
         this.reservationRepository = reservationRepository;
         this.easyboxRepository     = easyboxRepository;
+        this.easyboxCache          = easyboxCache;
         this.compartmentRepository = compartmentRepository;
+        this.compartmentCatalog    = compartmentCatalog;
         this.geocodingService      = geocodingService;
         this.userService = userService;
+        this.intervalIndex = intervalIndex;
+        this.easyboxLocator = easyboxLocator;
+        this.compartmentAllocator = compartmentAllocator;
+        this.qrTokenService = qrTokenService;
+        this.searchRadiusMeters = searchRadiusMeters;
+        this.maxRadiusMeters = maxRadiusMeters;
+        this.defaultMaxResults = defaultMaxResults;
+        this.checkConcurrency = checkConcurrency;
     }
-    private static final SecureRandom random = new SecureRandom();
-
-    private String generateUniqueSuffix() {
-        byte[] bytes = new byte[5]; // 40-bit
-        random.nextBytes(bytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes); // URL-safe
-    }
-    private Flux<Compartment> filterCompartments(Easybox box, Integer minTemp, Integer totalDim, LocalDateTime start, LocalDateTime end) {
-        LocalDateTime now = LocalDateTime.now();
-
-        return compartmentRepository.findByEasyboxId(box.getId())
-                .filter(c -> c.getCondition() != null && ("good".equalsIgnoreCase(c.getCondition()) ||
-                        "clean".equalsIgnoreCase(c.getCondition())))
-                .filter(c -> minTemp == null || c.getTemperature() == minTemp)
-                .filter(c -> totalDim == null || c.getSize() >= totalDim)
-                .concatMap(c ->
-                        reservationRepository.findByCompartmentId(c.getId())
-                                .filter(r -> {
-                                    String status = r.getStatus() != null ? r.getStatus().toLowerCase() : "";
-                                    return !status.equals("cancelled") && !status.equals("expired");
-                                })
-                                .filter(r -> r.getReservationStart().isBefore(end) &&
-                                        r.getReservationEnd().isAfter(start))
-                                .hasElements()
-                                .map(hasOverlap -> !hasOverlap)
-                                .filter(canUse -> canUse)
-                                .map(canUse -> c)
-                );
+    // Overlaps are answered by the in-memory index once loaded, by SQL until then;
+    // candidate compartments come from the catalog, already filtered by condition, temperature and size
+    private Flux<Compartment> availableCompartments(List<Long> boxIds, Integer minTemp, Integer totalDim,
+                                                    LocalDateTime start, LocalDateTime end) {
+        if (!intervalIndex.isReady()) {
+            return compartmentRepository.findAvailableInBoxes(boxIds, minTemp, totalDim, start, end);
+        }
+        return compartmentCatalog.usable(boxIds, minTemp, totalDim)
+                .filter(c -> intervalIndex.isFree(c.getId(), start, end))
+                .sort(Comparator.comparing(Compartment::getEasyboxId).thenComparing(Compartment::getId));
     }
     @Transactional
     public Mono<Reservation> holdReservation(CreateReservationRequest req, Authentication auth) {
@@ -81,40 +102,21 @@ public class ReservationService {
                     LocalDateTime start = delivery.minusHours(3);
                     LocalDateTime end = delivery.plusHours(27);
 
-                    return easyboxRepository.findById(req.getEasyboxId())
-                            .switchIfEmpty(Mono.error(new ConflictException("Easybox not found")))
-                            .flatMap(box ->
-                                    findAndLockAvailableCompartment(
-                                            box,
-                                            req.getMinTemperature(),
-                                            req.getTotalDimension(),
-                                            start,
-                                            end
-                                    )
-                                            .flatMap(compId -> {
-                                                Reservation r = new Reservation();
-                                                r.setDeliveryTime(delivery);
-                                                r.setReservationStart(start);
-                                                r.setReservationEnd(end);
-                                                r.setStatus("pending");              // 15-min soft lock
-                                                r.setExpiresAt(LocalDateTime.now().plusMinutes(15));
-                                                r.setEasyboxId(req.getEasyboxId());
-                                                r.setCompartmentId(compId);
-                                                r.setUserId(user.getId());
-                                                r.setBakeryId(bakeryId);
-
-                                                return reservationRepository.save(r)
-                                                        .onErrorResume(DuplicateKeyException.class, e -> {
-                                                            return Mono.error(new ConflictException("Compartment reservation conflict, please try again."));
-                                                        })
-                                                        .onErrorResume(e -> {
-                                                            if (e.getMessage() != null && e.getMessage().contains("compartment_no_overlap")) {
-                                                                return Mono.error(new ConflictException("Compartment already reserved, please try again."));
-                                                            }
-                                                            return Mono.error(e);
-                                                        });
-                                            })
-                            );
+                    return compartmentAllocator.allocate(new CompartmentAllocator.Hold(
+                                    req.getEasyboxId(),
+                                    req.getMinTemperature(),
+                                    req.getTotalDimension(),
+                                    delivery,
+                                    start,
+                                    end,
+                                    LocalDateTime.now().plusMinutes(15), // 15-min soft lock
+                                    user.getId(),
+                                    bakeryId
+                            ))
+                            .switchIfEmpty(Mono.defer(() -> easyboxRepository.existsById(req.getEasyboxId())
+                                    .flatMap(exists -> Mono.error(exists
+                                            ? new ConflictException("No compartments available in that window")
+                                            : new ConflictException("Easybox not found")))));
                 });
     }
 
@@ -126,25 +128,15 @@ public class ReservationService {
                     if (!"pending".equals(r.getStatus())) {
                         return Mono.just(r);
                     }
-                    return easyboxRepository.findById(r.getEasyboxId())
+                    return easyboxCache.findById(r.getEasyboxId())
                             .flatMap(box -> {
                                 r.setStatus("confirmed");
                                 r.setExpiresAt(null);
                                 return reservationRepository.save(r)
                                         .flatMap(saved -> {
-                                            try {
-                                                String uniqueSuffix = generateUniqueSuffix();
-
-                                                String qrContent = "reservation:" + saved.getId() + ":" + uniqueSuffix;
-
-                                                String qrBase64 = QrCodeService.generateQrCodeBase64(qrContent);
-
-                                                saved.setQrCodeData(qrBase64);
-
-                                                return reservationRepository.save(saved);
-                                            } catch (Exception e) {
-                                                return Mono.error(new ConfigurationException("Failed to generate QR code"));
-                                            }
+                                            // only the signed payload is stored; images are rendered on request
+                                            saved.setQrContent(qrTokenService.issue(saved, QrTokenService.Role.ANY));
+                                            return reservationRepository.save(saved);
                                         });
 
                             });
@@ -159,35 +151,84 @@ public class ReservationService {
             LocalDateTime start,
             LocalDateTime end,
             Integer minTemp,
-            Integer totalDim
+            Integer totalDim,
+            Integer limit,
+            Double radiusMeters
     ) {
-        return easyboxRepository.findByAddressIgnoreCase(address)
-                .filter(box -> "active".equalsIgnoreCase(box.getStatus()))
-                .flatMap(exactBox ->
-                        boxIfAvailable(exactBox, start, end, minTemp, totalDim, null, null)
-                                .defaultIfEmpty(null)
-                                .flatMap(exactDto -> {
-                                    if (exactDto != null) {
-                                        return collectOtherBoxes(address, exactDto, start, end, minTemp, totalDim);
-                                    }
-                                    return fallbackByDistance(address, start, end, minTemp, totalDim);
-                                })
-                )
-                .switchIfEmpty(fallbackByDistance(address, start, end, minTemp, totalDim));
+        return search(new SearchScope(), address, start, end, minTemp, totalDim, limit, radiusMeters);
+    }
+
+    /**
+     * Answers several availability queries at once, in request order. The queries share one
+     * {@link SearchScope}, so each address is geocoded and matched once, nearby boxes are loaded
+     * once per address and radius. A query that fails yields an entry carrying only its error,
+     * leaving the rest of the batch intact.
+     */
+    public Flux<RecommendedBoxesResponse> findAvailableBoxesBatch(List<ReservationQueryRequest> queries) {
+        if (queries == null || queries.isEmpty()) {
+            return Flux.empty();
+        }
+        if (queries.size() > MAX_BATCH_QUERIES) {
+            return Flux.error(new InvalidRequestException("At most " + MAX_BATCH_QUERIES + " queries per batch"));
+        }
+        // malformed entries reject the whole batch; only failures of well-formed queries are per entry
+        for (int i = 0; i < queries.size(); i++) {
+            ReservationQueryRequest q = queries.get(i);
+            if (q == null) {
+                return Flux.error(new InvalidRequestException("Query " + i + " is empty"));
+            }
+            if (q.getAddress() == null || q.getAddress().isBlank()) {
+                return Flux.error(new InvalidRequestException("Query " + i + " has no address"));
+            }
+        }
+        SearchScope scope = new SearchScope();
+        return Flux.fromIterable(queries)
+                .flatMapSequential(q -> Mono.defer(() -> search(scope,
+                                        q.getAddress(),
+                                        (q.getStart() != null) ? LocalDateTime.parse(q.getStart()) : null,
+                                        (q.getEnd() != null) ? LocalDateTime.parse(q.getEnd()) : null,
+                                        q.getMinTemperature(),
+                                        q.getTotalDimension(),
+                                        q.getLimit(),
+                                        q.getRadiusMeters()))
+                                .onErrorResume(e -> Mono.just(failedQuery(q, e))),
+                        checkConcurrency);
+    }
+
+    private static RecommendedBoxesResponse failedQuery(ReservationQueryRequest query, Throwable error) {
+        boolean expected = error instanceof InvalidRequestException
+                || error instanceof GeocodingException
+                || error instanceof DateTimeParseException;
+        if (expected) {
+            log.debug("Batch availability query for '{}' failed: {}", query.getAddress(), error.getMessage());
+        } else {
+            log.warn("Batch availability query for '{}' failed", query.getAddress(), error);
+        }
+        RecommendedBoxesResponse response = new RecommendedBoxesResponse(null, List.of());
+        response.setError(expected ? error.getMessage() : "Availability search failed for this query");
+        return response;
     }
 
-    private Mono<Long> findAndLockAvailableCompartment(Easybox box,
-                                                       Integer minTemp,
-                                                       Integer totalDim,
-                                                       LocalDateTime start,
-                                                       LocalDateTime end) {
+    private Mono<RecommendedBoxesResponse> search(SearchScope scope,
+                                                  String address,
+                                                  LocalDateTime start,
+                                                  LocalDateTime end,
+                                                  Integer minTemp,
+                                                  Integer totalDim,
+                                                  Integer limit,
+                                                  Double radiusMeters) {
+        int k = (limit != null) ? Math.max(1, Math.min(limit, MAX_RESULTS)) : defaultMaxResults;
+        double radius = (radiusMeters != null && radiusMeters > 0)
+                ? Math.min(radiusMeters, maxRadiusMeters)
+                : searchRadiusMeters;
 
-        LocalDateTime now = LocalDateTime.now();
-        return filterCompartments(box, minTemp, totalDim, start, end)
-                .map(Compartment::getId)
-                .next()   // first compartment that we successfully locked
-                .switchIfEmpty(Mono.error(new ConflictException("No compartments available in that window")));
+        return scope.exactBox(address)
+                .filter(box -> "active".equalsIgnoreCase(box.getStatus()))
+                .flatMap(exactBox -> boxIfAvailable(exactBox, start, end, minTemp, totalDim, null, null))
+                .flatMap(exactDto -> collectOtherBoxes(scope, address, exactDto, start, end, minTemp, totalDim, k, radius))
+                .switchIfEmpty(Mono.defer(() -> fallbackByDistance(scope, address, start, end, minTemp, totalDim, k, radius)));
     }
+
     private Mono<EasyboxDto> boxIfAvailable(Easybox box,
                                             LocalDateTime st,
                                             LocalDateTime ed,
@@ -196,61 +237,43 @@ public class ReservationService {
                                             Double userLat,
                                             Double userLon) {
 
-      return filterCompartments(box, minTemp, totalDim, st, ed)
+      return availableCompartments(List.of(box.getId()), minTemp, totalDim, st, ed)
                 .hasElements()
                 .filter(Boolean::booleanValue)
-                .map(ok -> {
-                    EasyboxDto dto = new EasyboxDto(
-                            box.getId(),
-                            box.getAddress(),
-                            box.getStatus(),
-                            box.getLatitude(),
-                            box.getLongitude(),
-                            1000
-                    );
-                    dto.setAvailable(true);
-                    if (userLat != null && userLon != null) {
-                        dto.setDistance(
-                                geocodingService.distance(box.getLatitude(), box.getLongitude(),
-                                        userLat,         userLon));
-                    }
-                    return dto;
-                });
+                .map(ok -> toAvailableDto(box, userLat, userLon));
     }
 
 
-    private Mono<RecommendedBoxesResponse> collectOtherBoxes(String address, EasyboxDto exact,
+    private Mono<RecommendedBoxesResponse> collectOtherBoxes(SearchScope scope, String address, EasyboxDto exact,
                                                              LocalDateTime st, LocalDateTime ed,
-                                                             Integer minTemp, Integer totalDim) {
+                                                             Integer minTemp, Integer totalDim,
+                                                             int k, double radius) {
 
-        return geocodingService.geocodeAddress(address)
+        return scope.coords(address)
                 .flatMap(coords ->
-                        easyboxRepository.findAll()
+                        scope.nearby(address, radius)
+                                .flatMapMany(Flux::fromIterable)
                                 .filter(e -> !e.getId().equals(exact.getId()))
                                 .collectList()
-                                .flatMapMany(list -> Flux.fromIterable(list)
-                                        .sort(Comparator.comparingDouble(
-                                                e -> geocodingService.distance(e.getLatitude(), e.getLongitude(),
-                                                        coords[0],        coords[1])))
-                                        .concatMap(e -> boxIfAvailable(e, st, ed, minTemp, totalDim,
-                                                coords[0], coords[1])))
+                                .flatMapMany(boxes -> rankAvailable(boxes, st, ed, minTemp, totalDim,
+                                        coords[0], coords[1], k - 1))
                                 .collectList()
                                 .map(others -> new RecommendedBoxesResponse(exact, others)));
     }
 
-    private Mono<RecommendedBoxesResponse> fallbackByDistance(String address,
+    private Mono<RecommendedBoxesResponse> fallbackByDistance(SearchScope scope, String address,
                                                               LocalDateTime st, LocalDateTime ed,
-                                                              Integer minTemp, Integer totalDim) {
+                                                              Integer minTemp, Integer totalDim,
+                                                              int k, double radius) {
 
-        return geocodingService.geocodeAddress(address)
+        return scope.coords(address)
                 .flatMap(coords ->
-                        easyboxRepository.findAll()
+                        scope.nearby(address, radius)
+                                .flatMapMany(Flux::fromIterable)
                                 .filter(b -> "active".equalsIgnoreCase(b.getStatus()))
-                                .sort(Comparator.comparingDouble(
-                                        e -> geocodingService.distance(e.getLatitude(), e.getLongitude(),
-                                                coords[0],        coords[1])))
-                                .concatMap(e -> boxIfAvailable(e, st, ed, minTemp, totalDim,
-                                        coords[0], coords[1]))
+                                .collectList()
+                                .flatMapMany(boxes -> rankAvailable(boxes, st, ed, minTemp, totalDim,
+                                        coords[0], coords[1], k))
                                 .collectList()
                                 .map(list -> {
                                     if (list.isEmpty()) {
@@ -263,4 +286,88 @@ public class ReservationService {
                                     return new RecommendedBoxesResponse(rec, others);
                                 }));
     }
+
+    /**
+     * The first {@code k} available boxes of a distance-ordered candidate list. Batches are checked
+     * with bounded concurrency but emitted in candidate order, so the result is deterministic and
+     * the remaining batches are cancelled as soon as {@code k} boxes have been found.
+     */
+    private Flux<EasyboxDto> rankAvailable(List<Easybox> candidates,
+                                           LocalDateTime st, LocalDateTime ed,
+                                           Integer minTemp, Integer totalDim,
+                                           Double userLat, Double userLon,
+                                           int k) {
+        if (k <= 0) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(candidates)
+                .buffer(CHECK_BATCH_SIZE)
+                .flatMapSequential(batch -> availableBoxes(batch, st, ed, minTemp, totalDim, userLat, userLon),
+                        checkConcurrency)
+                .take(k);
+    }
+
+    // One availability query for a batch of candidate boxes; keeps the order of the given list
+    private Flux<EasyboxDto> availableBoxes(List<Easybox> boxes,
+                                            LocalDateTime st, LocalDateTime ed,
+                                            Integer minTemp, Integer totalDim,
+                                            Double userLat, Double userLon) {
+        if (boxes.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Long> ids = boxes.stream().map(Easybox::getId).toList();
+
+        return availableCompartments(ids, minTemp, totalDim, st, ed)
+                .map(Compartment::getEasyboxId)
+                .collect(Collectors.toSet())
+                .flatMapMany(availableIds -> Flux.fromIterable(boxes)
+                        .filter(box -> availableIds.contains(box.getId()))
+                        .map(box -> toAvailableDto(box, userLat, userLon)));
+    }
+
+    private EasyboxDto toAvailableDto(Easybox box, Double userLat, Double userLon) {
+        EasyboxDto dto = new EasyboxDto(
+                box.getId(),
+                box.getAddress(),
+                box.getStatus(),
+                box.getLatitude(),
+                box.getLongitude(),
+                1000
+        );
+        dto.setAvailable(true);
+        if (userLat != null && userLon != null) {
+            dto.setDistance(
+                    geocodingService.distance(box.getLatitude(), box.getLongitude(),
+                            userLat,         userLon));
+        }
+        return dto;
+    }
+
+    /**
+     * Lookups memoized for the duration of one search, or of one batch of searches. Only results
+     * are shared: a failed lookup is not kept, so the next query asking for it tries again.
+     */
+    private final class SearchScope {
+
+        private final Map<String, Mono<double[]>> coordsByAddress = new ConcurrentHashMap<>();
+        private final Map<String, Mono<Easybox>> exactByAddress = new ConcurrentHashMap<>();
+        private final Map<String, Mono<List<Easybox>>> nearbyByKey = new ConcurrentHashMap<>();
+
+        Mono<double[]> coords(String address) {
+            return coordsByAddress.computeIfAbsent(address, a -> memoize(geocodingService.geocodeAddress(a)));
+        }
+
+        Mono<Easybox> exactBox(String address) {
+            return exactByAddress.computeIfAbsent(address, a -> memoize(easyboxRepository.findByAddressIgnoreCase(a)));
+        }
+
+        Mono<List<Easybox>> nearby(String address, double radius) {
+            return nearbyByKey.computeIfAbsent(address + "|" + radius, key -> memoize(coords(address)
+                    .flatMap(c -> easyboxLocator.findNearest(c[0], c[1], radius, Integer.MAX_VALUE).collectList())));
+        }
+
+        private <T> Mono<T> memoize(Mono<T> lookup) {
+            return lookup.cache(value -> SCOPE_TTL, error -> Duration.ZERO, () -> SCOPE_TTL);
+        }
+    }
 }
@@ -0,0 +1,262 @@
+package com.example.network.service;
+
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fires reservation state transitions at their due time instead of waiting for the next poll.
+ * Every in-flow reservation contributes the instants at which its state may change, keyed by its
+ * id and version so a newer state replaces what an older one planned; instants falling in the same
+ * second share one slot. When a slot comes due, the set-based transitions of
+ * {@link ReservationCleanupService} (and the pending-hold release) run once for everything due,
+ * on whichever replica wins the cluster lock. The plan is rebuilt from the database on startup;
+ * the periodic jobs remain as a reconciliation sweep.
+ */
+@Component
+public class ReservationTransitionScheduler implements AfterSaveCallback<Reservation> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationTransitionScheduler.class);
+
+    // the bulk statements compare strictly against now, so fire just after the boundary
+    private static final Duration FIRE_LAG = Duration.ofSeconds(1);
+    private static final Duration RUN_TIMEOUT = Duration.ofMinutes(2);
+    private static final Set<String> IN_FLOW =
+            Set.of("pending", "confirmed", "waiting_bakery_drop_off", "waiting_client_pick_up");
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationCleanupService cleanupService;
+    private final ReservationCleanupTask cleanupTask;
+    private final ClusterJobRunner clusterJobs;
+
+    // guarded by this: the worker waits on the same monitor for the first slot
+    private final Map<Long, Plan> plans = new HashMap<>();
+    private final TreeMap<Long, Integer> slots = new TreeMap<>(); // epoch second -> reservations due in it
+    private long firedThrough = Long.MIN_VALUE;                   // last epoch second already run
+    private volatile Thread worker;
+
+    public ReservationTransitionScheduler(ReservationRepository reservationRepository,
+                                          ReservationCleanupService cleanupService,
+                                          ReservationCleanupTask cleanupTask,
+                                          ClusterJobRunner clusterJobs,
+                                          ChangeEventBus changeEventBus,
+                                          MeterRegistry meterRegistry) {
+        this.reservationRepository = reservationRepository;
+        this.cleanupService = cleanupService;
+        this.cleanupTask = cleanupTask;
+        this.clusterJobs = clusterJobs;
+        meterRegistry.gauge("reservation.transitions.scheduled", this, ReservationTransitionScheduler::slotCount);
+        // bulk transitions and deletes don't go through the repository save, so follow their events
+        changeEventBus.subscribeAll(ChangeEventBus.RESERVATION, this::onChange);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reservationRepository.findInFlow()
+                .doOnNext(this::schedule)
+                .count()
+                .subscribe(
+                        count -> log.info("Transition scheduler loaded {} in-flow reservations", count),
+                        error -> log.error("Failed to load transition schedule", error)
+                );
+
+        Thread thread = new Thread(this::runLoop, "reservation-transitions");
+        thread.setDaemon(true);
+        thread.start();
+        worker = thread;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public Publisher<Reservation> onAfterSave(Reservation entity, OutboundRow outboundRow, SqlIdentifier table) {
+        return scheduleUntilRollback(entity);
+    }
+
+    /** Plans a reservation written in the current transaction, if any, and replans it should that transaction roll back. */
+    public Mono<Reservation> scheduleUntilRollback(Reservation entity) {
+        schedule(entity);
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(tsm -> tsm.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return status == STATUS_COMMITTED || entity.getId() == null
+                                ? Mono.empty()
+                                : replan(entity.getId()).onErrorResume(e -> {
+                                    log.warn("Failed to replan reservation {} after rollback", entity.getId(), e);
+                                    return Mono.empty();
+                                });
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .thenReturn(entity);
+    }
+
+    // the rolled-back version is newer than the row left in the database, so drop its plan first
+    private Mono<Void> replan(Long reservationId) {
+        unschedule(reservationId, Long.MAX_VALUE);
+        return reservationRepository.findById(reservationId)
+                .doOnNext(this::schedule)
+                .then();
+    }
+
+    /**
+     * Plans every future instant at which the reservation's state can change on its own, replacing
+     * what an older version of it planned. A version older than the one already planned is ignored.
+     */
+    public void schedule(Reservation r) {
+        if (r.getId() == null || r.getStatus() == null) {
+            return;
+        }
+        LocalDateTime start = r.getReservationStart();
+        LocalDateTime end = r.getReservationEnd();
+        TreeSet<LocalDateTime> instants = new TreeSet<>();
+        switch (r.getStatus()) {
+            case "pending" -> {
+                addIfPresent(instants, r.getExpiresAt());
+                addIfPresent(instants, start != null ? start.minusHours(1) : null);
+            }
+            case "confirmed" -> {
+                addIfPresent(instants, start != null ? start.minusHours(1) : null);
+                addIfPresent(instants, start);
+                addIfPresent(instants, start != null ? start.plusHours(3) : null);
+            }
+            case "waiting_bakery_drop_off" -> addIfPresent(instants, start != null ? start.plusHours(3) : null);
+            case "waiting_client_pick_up" -> addIfPresent(instants, end != null ? end.minusHours(3) : null);
+            default -> { }
+        }
+        replace(r.getId(), r.getVersion() != null ? r.getVersion() : 0L, instants);
+    }
+
+    /** Drops the reservation's planned instants unless a newer version than {@code version} planned them. */
+    public void unschedule(long reservationId, long version) {
+        replace(reservationId, version, new TreeSet<>());
+    }
+
+    private void onChange(ChangeEventBus.ChangeEvent event) {
+        if (event.deleted()) {
+            unschedule(event.id(), Long.MAX_VALUE);
+        } else if (event.after() != null && !IN_FLOW.contains(event.after().value(0))) {
+            unschedule(event.id(), event.version());
+        }
+    }
+
+    private static void addIfPresent(Set<LocalDateTime> instants, LocalDateTime at) {
+        if (at != null) {
+            instants.add(at);
+        }
+    }
+
+    private synchronized void replace(long reservationId, long version, TreeSet<LocalDateTime> instants) {
+        Plan current = plans.get(reservationId);
+        if (current != null && current.version() > version) {
+            return;
+        }
+        if (current != null) {
+            for (long second : current.seconds()) {
+                if (second > firedThrough) {
+                    slots.computeIfPresent(second, (k, n) -> n > 1 ? n - 1 : null);
+                }
+            }
+        }
+
+        long cutoff = LocalDateTime.now().minusMinutes(1).atZone(ZoneId.systemDefault()).toEpochSecond();
+        TreeSet<Long> seconds = new TreeSet<>();
+        for (LocalDateTime at : instants) {
+            long second = dueSecond(at);
+            if (second < cutoff) {
+                continue; // already handled or left to reconciliation
+            }
+            // a slot that has already run is not run again, so catch up in the next one
+            seconds.add(Math.max(second, firedThrough + 1));
+        }
+        if (seconds.isEmpty()) {
+            plans.remove(reservationId);
+        } else {
+            plans.put(reservationId, new Plan(version, seconds.stream().mapToLong(Long::longValue).toArray()));
+            seconds.forEach(second -> slots.merge(second, 1, Integer::sum));
+        }
+        notifyAll();
+    }
+
+    private static long dueSecond(LocalDateTime at) {
+        long millis = at.plus(FIRE_LAG).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.floorDiv(millis + 999, 1000);
+    }
+
+    private synchronized int slotCount() {
+        return slots.size();
+    }
+
+    /** Blocks until the first slot is due, then marks every slot due by now as fired. */
+    private synchronized void awaitDue() throws InterruptedException {
+        while (true) {
+            Map.Entry<Long, Integer> first = slots.firstEntry();
+            if (first == null) {
+                wait();
+                continue;
+            }
+            long delay = first.getKey() * 1000 - System.currentTimeMillis();
+            if (delay <= 0) {
+                break;
+            }
+            wait(delay);
+        }
+        // everything already due is covered by the same pass
+        long now = Math.floorDiv(System.currentTimeMillis(), 1000);
+        slots.headMap(now, true).clear();
+        firedThrough = Math.max(firedThrough, now);
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                awaitDue();
+                LocalDateTime now = LocalDateTime.now();
+                // every replica plans the same slots; the lock lets one of them run each pass
+                clusterJobs.singleton("reservation-transitions", RUN_TIMEOUT,
+                                () -> cleanupTask.releaseExpired(now)
+                                        .zipWith(cleanupService.runTransitions(now)))
+                        .doOnNext(counts -> log.debug("Timed transitions: {} holds released, {} reservations updated",
+                                counts.getT1(), counts.getT2()))
+                        .block(RUN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Timed reservation transition failed", e);
+            }
+        }
+    }
+
+    private record Plan(long version, long[] seconds) { }
+}
@@ -0,0 +1,66 @@
+package db.migration;
+
+import com.example.network.service.QrCodeService;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Decodes the stored QR images once so existing reservations can be found by qr_content
+public class V5__backfill_reservation_qr_content extends BaseJavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(V5__backfill_reservation_qr_content.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, "reservation", "qr_code_data")) {
+            if (!columns.next()) {
+                return; // nothing to backfill from
+            }
+        }
+
+        int updated = 0;
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE reservation SET qr_content = ? WHERE id = ?")) {
+            // inside Flyway's transaction this makes PgJDBC read through a cursor instead of
+            // loading every stored image up front
+            select.setFetchSize(BATCH_SIZE);
+            ResultSet rs = select.executeQuery(
+                    "SELECT id, qr_code_data FROM reservation WHERE qr_content IS NULL AND qr_code_data IS NOT NULL");
+
+            int pending = 0;
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                try {
+                    update.setString(1, QrCodeService.decodeQrFromBase64Png(rs.getString("qr_code_data")));
+                    update.setLong(2, id);
+                    update.addBatch();
+                    pending++;
+                } catch (Exception e) {
+                    log.warn("QR backfill skipped reservation {}: {}", id, e.getMessage());
+                }
+
+                if (pending == BATCH_SIZE) {
+                    update.executeBatch();
+                    updated += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+                updated += pending;
+            }
+        }
+        log.info("QR backfill stored content for {} reservations", updated);
+    }
+}
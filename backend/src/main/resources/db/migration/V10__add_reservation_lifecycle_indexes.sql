@@ -0,0 +1,9 @@
+-- Lifecycle job: only reservations still moving through the flow are indexed,
+-- so the bulk transitions stay cheap however many completed rows pile up
+CREATE INDEX IF NOT EXISTS idx_reservation_open_start
+    ON reservation (status, reservation_start)
+    WHERE status IN ('pending', 'confirmed', 'waiting_bakery_drop_off', 'waiting_client_pick_up');
+
+CREATE INDEX IF NOT EXISTS idx_reservation_pick_up_end
+    ON reservation (reservation_end)
+    WHERE status = 'waiting_client_pick_up';
@@ -0,0 +1,12 @@
+-- Replicas heartbeat here; partitioned jobs split rows across the live members
+CREATE TABLE IF NOT EXISTS cluster_member (
+    instance_id  VARCHAR(128) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+);
+
+-- Singleton job leases, used when advisory locks are unavailable (cluster.jobs.lock-mode=lease)
+CREATE TABLE IF NOT EXISTS job_lease (
+    name       VARCHAR(100) PRIMARY KEY,
+    owner      VARCHAR(128) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
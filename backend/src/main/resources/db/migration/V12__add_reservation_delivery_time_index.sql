@@ -0,0 +1,2 @@
+-- Dashboard: orders per delivery day over the coming week
+CREATE INDEX IF NOT EXISTS idx_reservation_delivery_time ON reservation (delivery_time);
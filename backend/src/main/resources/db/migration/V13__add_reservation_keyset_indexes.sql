@@ -0,0 +1,3 @@
+-- Admin reservation grid: keyset pages over (reservation_start, id), overall and per bakery
+CREATE INDEX IF NOT EXISTS idx_reservation_start_id ON reservation (reservation_start, id);
+CREATE INDEX IF NOT EXISTS idx_reservation_bakery_start_id ON reservation (bakery_id, reservation_start, id);
@@ -0,0 +1,5 @@
+-- Admin reservation grid filtered by customer: keyset order, then per delivery day
+CREATE INDEX IF NOT EXISTS idx_reservation_user_start_id ON reservation (user_id, reservation_start, id);
+CREATE INDEX IF NOT EXISTS idx_reservation_user_delivery ON reservation (user_id, delivery_time);
+-- Same for a bakery's reservations on one delivery day (counts and pages)
+CREATE INDEX IF NOT EXISTS idx_reservation_bakery_delivery ON reservation (bakery_id, delivery_time);
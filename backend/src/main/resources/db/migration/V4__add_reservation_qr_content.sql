@@ -0,0 +1,4 @@
+-- Plain QR payload next to the rendered image so a scan resolves with one indexed lookup
+ALTER TABLE reservation ADD COLUMN IF NOT EXISTS qr_content VARCHAR(255);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_reservation_qr_content ON reservation (qr_content);
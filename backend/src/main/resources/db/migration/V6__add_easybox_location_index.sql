@@ -0,0 +1,2 @@
+-- Bounding-box prefilter for nearest-Easybox searches
+CREATE INDEX IF NOT EXISTS idx_easybox_location ON easybox (latitude, longitude);
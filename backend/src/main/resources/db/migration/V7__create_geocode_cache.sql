@@ -0,0 +1,9 @@
+-- Second-level cache for LocationIQ lookups, keyed by the normalized address
+CREATE TABLE IF NOT EXISTS geocode_cache (
+                                             address_key VARCHAR(512) PRIMARY KEY,
+                                             latitude    DOUBLE PRECISION NOT NULL,
+                                             longitude   DOUBLE PRECISION NOT NULL,
+                                             fetched_at  TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_geocode_cache_fetched_at ON geocode_cache (fetched_at);
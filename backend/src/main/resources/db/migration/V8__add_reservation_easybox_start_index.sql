@@ -0,0 +1,2 @@
+-- Per-box reservation timeline, read in start order by the free-slot calendar
+CREATE INDEX IF NOT EXISTS idx_reservation_easybox_start ON reservation (easybox_id, reservation_start);
@@ -0,0 +1,13 @@
+-- QR images are rendered on demand from qr_content (backfilled by V5)
+-- V5 skips images it cannot decode; dropping the column would lose their QR for good
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'reservation' AND column_name = 'qr_code_data') THEN
+        IF EXISTS (SELECT 1 FROM reservation WHERE qr_content IS NULL AND qr_code_data IS NOT NULL) THEN
+            RAISE EXCEPTION 'reservation rows still have qr_code_data but no qr_content; backfill them before dropping the column';
+        END IF;
+    END IF;
+END $$;
+
+ALTER TABLE reservation DROP COLUMN IF EXISTS qr_code_data;
@@ -0,0 +1,45 @@
+package com.example.network;
+
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * One throwaway Postgres per test JVM for the tests that need the real database (NOTIFY, GiST
+ * constraints, index plans). Tests calling {@link #start()} are skipped where Docker is missing.
+ */
+public final class TestPostgres {
+
+    private static PostgreSQLContainer<?> container;
+
+    private TestPostgres() {
+    }
+
+    public static synchronized PostgreSQLContainer<?> start() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    /** Connection settings for an application context, as command-line style arguments. */
+    public static List<String> properties(boolean migrate) {
+        PostgreSQLContainer<?> db = start();
+        String hostAndDb = db.getHost() + ":" + db.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT)
+                + "/" + db.getDatabaseName();
+        return List.of(
+                "--spring.r2dbc.url=r2dbc:postgresql://" + hostAndDb,
+                "--spring.r2dbc.username=" + db.getUsername(),
+                "--spring.r2dbc.password=" + db.getPassword(),
+                "--spring.flyway.enabled=" + migrate,
+                "--spring.flyway.url=" + db.getJdbcUrl(),
+                "--spring.flyway.user=" + db.getUsername(),
+                "--spring.flyway.password=" + db.getPassword()
+        );
+    }
+}
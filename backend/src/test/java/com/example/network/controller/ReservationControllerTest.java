@@ -0,0 +1,107 @@
+package com.example.network.controller;
+
+import com.example.network.exception.GeocodingException;
+import com.example.network.exception.GlobalExceptionHandler;
+import com.example.network.repository.CompartmentRepository;
+import com.example.network.repository.EasyboxRepository;
+import com.example.network.repository.ReservationRepository;
+import com.example.network.service.CompartmentAllocator;
+import com.example.network.service.CompartmentCatalog;
+import com.example.network.service.EasyboxCache;
+import com.example.network.service.EasyboxLocator;
+import com.example.network.service.FreeSlotCalendarService;
+import com.example.network.service.GeocodingService;
+import com.example.network.service.QrTokenService;
+import com.example.network.service.ReservationIntervalIndex;
+import com.example.network.service.ReservationService;
+import com.example.network.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationControllerTest {
+
+    private final EasyboxRepository easyboxes = mock(EasyboxRepository.class);
+    private final GeocodingService geocoding = mock(GeocodingService.class);
+    private final EasyboxLocator locator = mock(EasyboxLocator.class);
+    private WebTestClient client;
+
+    @BeforeEach
+    void bindController() {
+        ReservationService reservations = new ReservationService(
+                mock(ReservationRepository.class), easyboxes, mock(EasyboxCache.class),
+                mock(CompartmentRepository.class), mock(CompartmentCatalog.class), geocoding,
+                mock(UserService.class), mock(ReservationIntervalIndex.class), locator,
+                mock(CompartmentAllocator.class), mock(QrTokenService.class),
+                50_000, 100_000, 20, 4);
+        client = WebTestClient.bindToController(
+                        new ReservationController(reservations, mock(FreeSlotCalendarService.class)))
+                .controllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        when(easyboxes.findByAddressIgnoreCase(anyString())).thenReturn(Mono.empty());
+        when(geocoding.geocodeAddress("Nowhere 1")).thenReturn(Mono.error(new GeocodingException("Address not found")));
+        when(geocoding.geocodeAddress("Main Street 1")).thenReturn(Mono.just(new double[]{44.43, 26.10}));
+        when(locator.findNearest(anyDouble(), anyDouble(), anyDouble(), anyInt())).thenReturn(Flux.empty());
+    }
+
+    @Test
+    void batchReportsAFailedQueryInItsOwnEntry() {
+        client.post().uri("/api/widget/reservation/available/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"address\": \"Nowhere 1\"}, {\"address\": \"Main Street 1\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].error").isEqualTo("Address not found")
+                .jsonPath("$[0].otherBoxes.length()").isEqualTo(0)
+                .jsonPath("$[1].error").doesNotExist()
+                .jsonPath("$[1].recommendedBox").doesNotExist()
+                .jsonPath("$[1].otherBoxes.length()").isEqualTo(0);
+    }
+
+    @Test
+    void requestedRadiusIsCappedAtTheConfiguredMaximum() {
+        client.post().uri("/api/widget/reservation/available")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"address\": \"Main Street 1\", \"radiusMeters\": 1e9}")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(locator).findNearest(eq(44.43), eq(26.10), eq(100_000.0), anyInt());
+    }
+
+    @Test
+    void batchRejectsAnEmptyEntry() {
+        client.post().uri("/api/widget/reservation/available/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"address\": \"Main Street 1\"}, null]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Query 1 is empty");
+    }
+
+    @Test
+    void batchRejectsABlankAddress() {
+        client.post().uri("/api/widget/reservation/available/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"address\": \"  \"}]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Query 0 has no address");
+    }
+}
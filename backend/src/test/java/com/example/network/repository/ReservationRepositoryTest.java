@@ -0,0 +1,107 @@
+package com.example.network.repository;
+
+import com.example.network.TestPostgres;
+import com.example.network.model.Reservation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the migrated schema: scans resolve by qr_content through the unique index
+ * created in V4 rather than a scan of the reservation table.
+ */
+class ReservationRepositoryTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int ROWS = 5_000;
+
+    private static ConfigurableApplicationContext context;
+    private static DatabaseClient db;
+    private static ReservationRepository reservations;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({R2dbcAutoConfiguration.class, R2dbcDataAutoConfiguration.class,
+            FlywayAutoConfiguration.class})
+    @EnableR2dbcRepositories(basePackageClasses = ReservationRepository.class)
+    static class Schema {
+    }
+
+    @BeforeAll
+    static void migrateAndSeed() {
+        context = new SpringApplicationBuilder(Schema.class)
+                .web(WebApplicationType.NONE)
+                .run(TestPostgres.properties(true).toArray(String[]::new));
+        db = context.getBean(DatabaseClient.class);
+        reservations = context.getBean(ReservationRepository.class);
+
+        db.sql("DELETE FROM reservation WHERE qr_content LIKE 'repository-test:%'").fetch().rowsUpdated().block(TIMEOUT);
+        db.sql("""
+                        INSERT INTO reservation (status, compartment_id, qr_content)
+                        SELECT 'confirmed', 1000000 + g, 'repository-test:' || g FROM generate_series(1, :rows) AS g
+                        """)
+                .bind("rows", ROWS)
+                .fetch().rowsUpdated()
+                .block(TIMEOUT);
+        db.sql("ANALYZE reservation").fetch().rowsUpdated().block(TIMEOUT);
+    }
+
+    @AfterAll
+    static void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void findByQrContentReturnsTheMatchingReservation() {
+        Reservation found = reservations.findByQrContent("repository-test:1234").block(TIMEOUT);
+
+        assertNotNull(found);
+        assertEquals("repository-test:1234", found.getQrContent());
+        assertEquals(1_001_234L, found.getCompartmentId());
+        assertNull(reservations.findByQrContent("repository-test:missing").block(TIMEOUT));
+    }
+
+    @Test
+    void findByQrContentUsesTheUniqueIndex() {
+        // the statement Spring Data derives for findByQrContent
+        String plan = db.sql("EXPLAIN SELECT reservation.* FROM reservation WHERE reservation.qr_content = 'repository-test:1234'")
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collect(Collectors.joining("\n"))
+                .block(TIMEOUT);
+
+        assertNotNull(plan);
+        assertTrue(plan.contains("idx_reservation_qr_content"), "expected an index lookup, got:\n" + plan);
+        assertFalse(plan.contains("Seq Scan"), "expected no sequential scan, got:\n" + plan);
+    }
+
+    @Test
+    void qrContentIsUnique() {
+        assertThrows(DataIntegrityViolationException.class, () ->
+                db.sql("INSERT INTO reservation (status, compartment_id, qr_content) VALUES ('confirmed', 2000000, 'repository-test:1')")
+                        .fetch().rowsUpdated()
+                        .block(TIMEOUT));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.network.service;
+
+import com.example.network.TestPostgres;
+import com.example.network.model.Compartment;
+import com.example.network.repository.CompartmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Two application contexts on one database, standing in for two replicas: a save on one must
+ * reach the other's change listeners, and only once its transaction commits.
+ */
+class ChangeEventBusReplicaTest {
+
+    private static final String PROBE = "probe";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static ConfigurableApplicationContext replicaA;
+    private static ConfigurableApplicationContext replicaB;
+    private static final BlockingQueue<ChangeEventBus.ChangeEvent> seenByB = new LinkedBlockingQueue<>();
+    private static final BlockingQueue<ChangeEventBus.ChangeEvent> seenByA = new LinkedBlockingQueue<>();
+    private static long easyboxId;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class,
+            R2dbcDataAutoConfiguration.class, FlywayAutoConfiguration.class})
+    @EnableR2dbcRepositories(basePackageClasses = CompartmentRepository.class)
+    @Import({ClusterJobRunner.class, ChangeEventBus.class, ChangeEventPublisher.class})
+    static class Replica {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeAll
+    static void startReplicas() throws InterruptedException {
+        replicaA = start(true);
+        replicaB = start(false);
+        replicaB.getBean(ChangeEventBus.class).subscribe(ChangeEventBus.COMPARTMENT, seenByB::add);
+        replicaA.getBean(ChangeEventBus.class).subscribe(ChangeEventBus.COMPARTMENT, seenByA::add);
+
+        easyboxId = replicaA.getBean(DatabaseClient.class)
+                .sql("INSERT INTO easybox (address, latitude, longitude, status) VALUES ('test', 0, 0, 'active') RETURNING id")
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block(TIMEOUT);
+
+        awaitListening();
+    }
+
+    @AfterAll
+    static void stopReplicas() {
+        if (replicaB != null) {
+            replicaB.close();
+        }
+        if (replicaA != null) {
+            replicaA.close();
+        }
+    }
+
+    @BeforeEach
+    void clearQueues() {
+        seenByA.clear();
+        seenByB.clear();
+    }
+
+    @Test
+    void saveOnOneReplicaReachesTheOthersListeners() throws InterruptedException {
+        Compartment saved = replicaA.getBean(CompartmentRepository.class)
+                .save(new Compartment(null, easyboxId, 10, 4, "free", "good"))
+                .block(TIMEOUT);
+        assertNotNull(saved);
+
+        ChangeEventBus.ChangeEvent event = seenByB.poll(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertNotNull(event, "replica B never saw the save");
+        assertEquals(saved.getId(), event.id());
+        assertEquals(saved.getVersion(), event.version());
+        assertFalse(event.deleted());
+        assertEquals(ChangeEventBus.State.ABSENT, event.before());
+        assertEquals(ChangeEventPublisher.stateOf(saved), event.after());
+
+        // subscribe() is for other replicas' changes only
+        assertNull(seenByA.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void rolledBackSaveIsNeverAnnounced() throws InterruptedException {
+        TransactionalOperator tx = TransactionalOperator.create(replicaA.getBean(ReactiveTransactionManager.class));
+        CompartmentRepository compartments = replicaA.getBean(CompartmentRepository.class);
+
+        tx.transactional(compartments.save(new Compartment(null, easyboxId, 10, 4, "free", "good"))
+                        .then(Mono.error(new IllegalStateException("rollback"))))
+                .onErrorResume(IllegalStateException.class, e -> Mono.empty())
+                .block(TIMEOUT);
+        assertNull(seenByB.poll(1, TimeUnit.SECONDS), "a rolled-back save was announced");
+
+        Compartment committed = tx.transactional(compartments.save(new Compartment(null, easyboxId, 10, 4, "free", "good")))
+                .block(TIMEOUT);
+        assertNotNull(committed);
+        ChangeEventBus.ChangeEvent event = seenByB.poll(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertNotNull(event, "replica B never saw the committed save");
+        assertEquals(committed.getId(), event.id());
+    }
+
+    private static ConfigurableApplicationContext start(boolean migrate) {
+        return new SpringApplicationBuilder(Replica.class)
+                .web(WebApplicationType.NONE)
+                .run(TestPostgres.properties(migrate).toArray(String[]::new));
+    }
+
+    // LISTEN is issued asynchronously on startup, so probe until B hears A
+    private static void awaitListening() throws InterruptedException {
+        BlockingQueue<ChangeEventBus.ChangeEvent> probes = new LinkedBlockingQueue<>();
+        replicaB.getBean(ChangeEventBus.class).subscribe(PROBE, probes::add);
+        ChangeEventBus busA = replicaA.getBean(ChangeEventBus.class);
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            busA.publish(ChangeEventBus.ChangeEvent.saved(PROBE, 0L, 0L)).block(TIMEOUT);
+            if (probes.poll(200, TimeUnit.MILLISECONDS) != null) {
+                return;
+            }
+        }
+        throw new IllegalStateException("replica B is not listening for change events");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.network.service;
+
+import com.example.network.model.Easybox;
+import com.example.network.repository.EasyboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EasyboxLocatorTest {
+
+    private final List<Easybox> fleet = new ArrayList<>();
+    private final EasyboxRepository easyboxes = mock(EasyboxRepository.class);
+    private final GeocodingService geocoding = mock(GeocodingService.class);
+    private final EasyboxLocator locator = new EasyboxLocator(easyboxes, geocoding);
+
+    @BeforeEach
+    void boundsQueryOverTheFleet() {
+        when(easyboxes.findWithinBounds(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenAnswer(call -> {
+            double minLat = call.getArgument(0), maxLat = call.getArgument(1);
+            double minLon = call.getArgument(2), maxLon = call.getArgument(3);
+            return Flux.fromIterable(fleet).filter(box -> box.getLatitude() >= minLat && box.getLatitude() <= maxLat
+                    && box.getLongitude() >= minLon && box.getLongitude() <= maxLon);
+        });
+        when(geocoding.distance(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenCallRealMethod();
+    }
+
+    @Test
+    void findsBoxesJustInsideTheRadiusAtTheBoxEdge() {
+        double metersPerDegree = GeocodingService.EARTH_RADIUS_METERS * Math.PI / 180;
+        box(1L, 45.0 + 9_990 / metersPerDegree, 10.0);
+        box(2L, 60.0, 10.0 + Math.toDegrees(9_990 / GeocodingService.EARTH_RADIUS_METERS / Math.cos(Math.toRadians(60.0))));
+
+        assertEquals(List.of(1L), ids(locator.findNearest(45.0, 10.0, 10_000, 5)));
+        assertEquals(List.of(2L), ids(locator.findNearest(60.0, 10.0, 10_000, 5)));
+    }
+
+    @Test
+    void searchesAcrossTheAntimeridian() {
+        box(1L, -17.0, -179.9);
+        box(2L, -17.0, 179.85);
+        box(3L, -17.0, 178.0);
+
+        assertEquals(List.of(2L, 1L), ids(locator.findNearest(-17.0, 179.95, 50_000, 5)));
+        assertEquals(List.of(1L, 2L), ids(locator.findNearest(-17.0, -179.95, 50_000, 5)));
+    }
+
+    @Test
+    void circleAroundAPoleCoversEveryLongitude() {
+        box(1L, 89.95, -120.0);
+
+        assertEquals(List.of(1L), ids(locator.findNearest(89.95, 60.0, 20_000, 5)));
+    }
+
+    private void box(long id, double lat, double lon) {
+        Easybox box = new Easybox("box " + id, lat, lon, "active", "box-" + id);
+        box.setId(id);
+        fleet.add(box);
+    }
+
+    private static List<Long> ids(Flux<Easybox> boxes) {
+        return boxes.map(Easybox::getId).collectList().block();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.network.service;
+
+import com.example.network.model.Compartment;
+import com.example.network.model.Easybox;
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FreeSlotCalendarServiceTest {
+
+    private static final long BOX = 5L;
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 5, 4, 0, 0);
+    private static final LocalDateTime TO = FROM.plusHours(10);
+
+    private final EasyboxCache easyboxes = mock(EasyboxCache.class);
+    private final CompartmentCatalog catalog = mock(CompartmentCatalog.class);
+    private final ReservationRepository reservations = mock(ReservationRepository.class);
+    private final FreeSlotCalendarService service = new FreeSlotCalendarService(easyboxes, catalog, reservations);
+
+    @Test
+    void backToBackReservationsLeaveNoSlotAtTheSharedInstant() {
+        givenCompartments(new Compartment(1L, BOX, 10, 4, "free", "good"));
+        givenReservations(
+                reservation(1L, FROM.plusHours(1), FROM.plusHours(2)),
+                reservation(1L, FROM.plusHours(2), FROM.plusHours(3)));
+
+        assertEquals(List.of(
+                slot(FROM, FROM.plusHours(1).minusSeconds(1)),
+                slot(FROM.plusHours(3).plusSeconds(1), TO)
+        ), slots());
+    }
+
+    @Test
+    void slotsAreBookableInOneCompartment() {
+        // A busy [1, 2], B busy [3, 4]: no single compartment is free over the whole range
+        givenCompartments(
+                new Compartment(1L, BOX, 10, 4, "free", "good"),
+                new Compartment(2L, BOX, 10, 4, "free", "good"));
+        givenReservations(
+                reservation(1L, FROM.plusHours(1), FROM.plusHours(2)),
+                reservation(2L, FROM.plusHours(3), FROM.plusHours(4)));
+
+        // A's gap before its booking and B's after it lie inside the other compartment's gaps
+        assertEquals(List.of(
+                slot(FROM, FROM.plusHours(3).minusSeconds(1)),
+                slot(FROM.plusHours(2).plusSeconds(1), TO)
+        ), slots());
+    }
+
+    @Test
+    void identicalCompartmentsYieldOneSlot() {
+        givenCompartments(
+                new Compartment(1L, BOX, 10, 4, "free", "good"),
+                new Compartment(2L, BOX, 10, 4, "free", "good"));
+        givenReservations();
+
+        assertEquals(List.of(slot(FROM, TO)), slots());
+    }
+
+    private List<String> slots() {
+        return service.freeSlots(BOX, FROM, TO)
+                .map(s -> slot(s.getTemperature(), s.getSize(), s.getStart(), s.getEnd()))
+                .collectList()
+                .block();
+    }
+
+    private void givenCompartments(Compartment... compartments) {
+        Easybox box = new Easybox();
+        box.setId(BOX);
+        when(easyboxes.findById(BOX)).thenReturn(Mono.just(box));
+        when(catalog.usable(eq(List.of(BOX)), any(), any())).thenReturn(Flux.just(compartments));
+    }
+
+    private void givenReservations(Reservation... ordered) {
+        when(reservations.findActiveByEasyboxIdBetween(BOX, FROM, TO)).thenReturn(Flux.just(ordered));
+    }
+
+    private static Reservation reservation(long compartmentId, LocalDateTime start, LocalDateTime end) {
+        Reservation r = new Reservation();
+        r.setCompartmentId(compartmentId);
+        r.setStatus("confirmed");
+        r.setReservationStart(start);
+        r.setReservationEnd(end);
+        return r;
+    }
+
+    private static String slot(LocalDateTime start, LocalDateTime end) {
+        return slot(4, 10, start, end);
+    }
+
+    private static String slot(int temperature, int size, LocalDateTime start, LocalDateTime end) {
+        return temperature + "/" + size + " " + start + " .. " + end;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.network.service;
+
+import com.example.network.exception.ConfigurationException;
+import com.example.network.exception.InvalidRequestException;
+import com.example.network.model.Easybox;
+import com.example.network.repository.CompartmentRepository;
+import com.example.network.repository.ReservationRepository;
+import com.example.network.service.QrTokenService.QrToken;
+import com.example.network.service.QrTokenService.Role;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QrTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final QrTokenService service = new QrTokenService(SECRET);
+
+    @Test
+    void roundTripsEveryField() {
+        QrToken token = new QrToken(42L, 7L, 3L, now() - 60, now() + 3600, Role.PICK_UP);
+
+        String encoded = service.issue(token);
+
+        assertTrue(QrTokenService.isToken(encoded));
+        assertEquals(token, service.verify(encoded));
+        assertEquals(encoded, service.issue(token), "issuing is deterministic");
+    }
+
+    @Test
+    void rejectsTamperedMac() {
+        String encoded = service.issue(validToken(Role.ANY));
+        int dot = encoded.lastIndexOf('.');
+        // the first MAC character carries six full bits, unlike the last one
+        char first = encoded.charAt(dot + 1);
+        String tampered = encoded.substring(0, dot + 1) + (first == 'A' ? 'B' : 'A') + encoded.substring(dot + 2);
+
+        assertNotEquals(encoded, tampered);
+        assertEquals("QR signature mismatch",
+                assertThrows(InvalidRequestException.class, () -> service.verify(tampered)).getMessage());
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String encoded = service.issue(validToken(Role.ANY));
+        int dot = encoded.lastIndexOf('.');
+        byte[] payload = Base64.getUrlDecoder().decode(encoded.substring(QrTokenService.VERSION_PREFIX.length(), dot));
+        payload[7] ^= 1; // another reservation id
+        String tampered = QrTokenService.VERSION_PREFIX
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(payload) + encoded.substring(dot);
+
+        assertThrows(InvalidRequestException.class, () -> service.verify(tampered));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        String foreign = new QrTokenService("fedcba9876543210fedcba9876543210").issue(validToken(Role.ANY));
+
+        assertThrows(InvalidRequestException.class, () -> service.verify(foreign));
+    }
+
+    @Test
+    void toleratesClockSkewWithinFiveMinutes() {
+        long now = now();
+        service.verify(service.issue(new QrToken(1L, 1L, 1L, now + 240, now + 3600, Role.ANY)));
+        service.verify(service.issue(new QrToken(1L, 1L, 1L, now - 3600, now - 240, Role.ANY)));
+    }
+
+    @Test
+    void rejectsTokensOutsideTheWindowPlusSkew() {
+        long now = now();
+        String notYetValid = service.issue(new QrToken(1L, 1L, 1L, now + 360, now + 3600, Role.ANY));
+        String expired = service.issue(new QrToken(1L, 1L, 1L, now - 3600, now - 360, Role.ANY));
+
+        assertThrows(InvalidRequestException.class, () -> service.verify(notYetValid));
+        assertThrows(InvalidRequestException.class, () -> service.verify(expired));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "reservation:12",
+            "v2.AAAA.AAAA",
+            "v1.",
+            "v1.no-mac-separator",
+            "v1.***.AAAAAAAAAAAAAAAAAAAAAA",
+            "v1.AAAA.AAAAAAAAAAAAAAAAAAAAAA",
+            "v1.AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA.AAAA"
+    })
+    void rejectsMalformedTokens(String qrContent) {
+        assertThrows(InvalidRequestException.class, () -> service.verify(qrContent));
+    }
+
+    @Test
+    void rejectsUnknownRoleEvenWhenSigned() {
+        String encoded = service.issue(validToken(Role.ANY));
+        int dot = encoded.lastIndexOf('.');
+        byte[] payload = Base64.getUrlDecoder().decode(encoded.substring(QrTokenService.VERSION_PREFIX.length(), dot));
+        payload[payload.length - 1] = 9;
+        String signed = QrTokenService.VERSION_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(payload);
+        String resigned = signed + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(signed));
+
+        assertEquals("Unknown QR role",
+                assertThrows(InvalidRequestException.class, () -> service.verify(resigned)).getMessage());
+    }
+
+    @Test
+    void rejectsShortSecret() {
+        assertThrows(ConfigurationException.class, () -> new QrTokenService("too-short"));
+    }
+
+    @Test
+    void rejectsScanOnAnotherBoxBeforeLoadingTheReservation() {
+        ReservationRepository reservations = mock(ReservationRepository.class);
+        EasyboxCache easyboxes = mock(EasyboxCache.class);
+        Easybox otherBox = new Easybox();
+        otherBox.setId(99L);
+        when(easyboxes.findByClientId("box-99")).thenReturn(Mono.just(otherBox));
+        QrCodeService scans = new QrCodeService(reservations, mock(CompartmentRepository.class), easyboxes, service);
+
+        String encoded = service.issue(new QrToken(42L, 7L, 3L, now() - 60, now() + 3600, Role.PICK_UP));
+
+        assertEquals("QR code belongs to another Easybox",
+                assertThrows(InvalidRequestException.class, () -> scans.handleQrScan(encoded, "box-99").block())
+                        .getMessage());
+        verify(reservations, never()).findById(anyLong());
+    }
+
+    private static QrToken validToken(Role role) {
+        return new QrToken(42L, 7L, 3L, now() - 60, now() + 3600, role);
+    }
+
+    private static long now() {
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static byte[] mac(String signed) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] truncated = new byte[16];
+            System.arraycopy(mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII)), 0, truncated, 0, 16);
+            return truncated;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.network.service;
+
+import com.example.network.service.QrTokenService.QrToken;
+import com.example.network.service.QrTokenService.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking a scanned QR token, in ns/op. Not part of the unit suite; run {@link #main}
+ * from the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.network.service.QrTokenVerifyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QrTokenVerifyBenchmark {
+
+    private QrTokenService service;
+    private String encoded;
+
+    @Setup
+    public void issue() {
+        service = new QrTokenService("0123456789abcdef0123456789abcdef");
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        encoded = service.issue(new QrToken(42L, 7L, 3L, now - 60, now + 3600, Role.ANY));
+    }
+
+    @Benchmark
+    public QrToken verify() {
+        return service.verify(encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QrTokenVerifyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.network.service;
+
+import com.example.network.model.Reservation;
+import com.example.network.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * compartment_no_overlap compares tsrange(start, end, '[]'), so a window ending at t collides with
+ * one starting at t. The index and the row-by-row check used before it is loaded must agree.
+ */
+class ReservationIntervalIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 5, 4, 10, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2026, 5, 4, 12, 0);
+
+    private final ReservationIntervalIndex index = new ReservationIntervalIndex(mock(ReservationRepository.class));
+
+    @BeforeEach
+    void trackOneWindow() {
+        index.track(reservation(1L, 7L, "confirmed", START, END));
+    }
+
+    @Test
+    void windowsSharingABoundInstantCollide() {
+        assertFalse(index.isFree(7L, END, END.plusHours(2)));
+        assertFalse(index.isFree(7L, START.minusHours(2), START));
+        assertTrue(ReservationIntervalIndex.overlaps(END, END.plusHours(2), START, END));
+        assertTrue(ReservationIntervalIndex.overlaps(START.minusHours(2), START, START, END));
+    }
+
+    @Test
+    void windowsOneSecondApartAreFree() {
+        assertTrue(index.isFree(7L, END.plusSeconds(1), END.plusHours(2)));
+        assertTrue(index.isFree(7L, START.minusHours(2), START.minusSeconds(1)));
+        assertFalse(ReservationIntervalIndex.overlaps(END.plusSeconds(1), END.plusHours(2), START, END));
+        assertFalse(ReservationIntervalIndex.overlaps(START.minusHours(2), START.minusSeconds(1), START, END));
+    }
+
+    @Test
+    void containedAndOtherCompartmentWindows() {
+        assertFalse(index.isFree(7L, START.plusMinutes(30), START.plusMinutes(40)));
+        assertTrue(index.isFree(8L, START, END));
+    }
+
+    @Test
+    void cancelledReservationsFreeTheirWindow() {
+        index.track(reservation(1L, 7L, "cancelled", START, END));
+
+        assertTrue(index.isFree(7L, START, END));
+    }
+
+    private static Reservation reservation(long id, long compartmentId, String status,
+                                           LocalDateTime start, LocalDateTime end) {
+        Reservation r = new Reservation();
+        r.setId(id);
+        r.setCompartmentId(compartmentId);
+        r.setStatus(status);
+        r.setReservationStart(start);
+        r.setReservationEnd(end);
+        r.setVersion(0L);
+        return r;
+    }
+}
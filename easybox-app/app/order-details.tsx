@@ -2,7 +2,8 @@ import { useLocalSearchParams } from 'expo-router';
 import { useEffect, useState } from 'react';
 import { Alert, View, StyleSheet, ScrollView, Image } from 'react-native';
 import {Text, Card, Divider, Button, Portal, Dialog, Paragraph} from 'react-native-paper';
-import api from '../lib/api';
+import api, { API_ORIGIN } from '../lib/api';
+import { getToken } from '../lib/auth';
 import ScreenHeader from './ScreenHeader';
 import { useAuth } from '../lib/AuthContext';
 import { SafeAreaView } from 'react-native-safe-area-context';
@@ -13,7 +14,7 @@ type Order = {
     deliveryTime: string;
     reservationStart?: string;
     easyboxAddress: string;
-    qrCodeData?: string;
+    qrUrl?: string;
     compartmentId: number;
     actionDeadline: string;
 };
@@ -69,6 +70,11 @@ export default function OrderDetails() {
     const { notify } = useNotification();
     const [confirm, setConfirm] = useState<null | { type: 'dirty' | 'broken' }>(null);
     const [order, setOrder] = useState<Order | null>(null);
+    const [token, setToken] = useState<string | null>(null);
+
+    useEffect(() => {
+        getToken().then(setToken);
+    }, []);
 
     useEffect(() => {
         if (!id || !role) return;
@@ -158,12 +164,17 @@ export default function OrderDetails() {
                             <Text style={styles.label}>{countdownLabel}:</Text>
                             <Text style={styles.countdown}>{timeLeft || '...'}</Text>
 
-                            {showQr && order.qrCodeData && (
+                            {showQr && order.qrUrl && token && (
                                 <>
                                     <Divider style={styles.divider} />
                                     <Text style={styles.label}>QR Code:</Text>
+                                    {/* the image is cached and revalidated with its ETag, not re-downloaded on every visit */}
                                     <Image
-                                        source={{ uri: `data:image/png;base64,${order.qrCodeData}` }}
+                                        source={{
+                                            uri: `${API_ORIGIN}${order.qrUrl}`,
+                                            headers: { Authorization: `Bearer ${token}` },
+                                            cache: 'default',
+                                        }}
                                         style={styles.qr}
                                     />
                                 </>
@@ -1,8 +1,10 @@
 import axios, { AxiosError } from 'axios';
 import { getToken, saveToken, removeToken } from './auth';
 
+export const API_ORIGIN = 'https://api.easybox-food.xyz';
+
 const api = axios.create({
-    baseURL: 'https://api.easybox-food.xyz/api/app',
+    baseURL: `${API_ORIGIN}/api/app`,
 });
 
 // Add token to all requests